@@ -21,12 +21,14 @@ import io.almostrealism.cycle.Setup;
 import io.almostrealism.relation.Operation;
 import io.almostrealism.relation.Producer;
 import org.almostrealism.Ops;
+import org.almostrealism.audio.arrange.ChannelSection;
 import org.almostrealism.audio.arrange.GlobalTimeManager;
 import org.almostrealism.audio.arrange.SceneSectionManager;
 import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.audio.optimize.AudioSceneGenome;
 import org.almostrealism.audio.optimize.DefaultAudioGenome;
 import org.almostrealism.audio.pattern.ChordProgressionManager;
+import org.almostrealism.audio.pattern.PatternLayerManager;
 import org.almostrealism.audio.pattern.PatternSystemManager;
 import org.almostrealism.audio.tone.DefaultKeyboardTuning;
 import org.almostrealism.audio.tone.KeyboardTuning;
@@ -86,6 +88,8 @@ public class AudioScene<T extends ShadableSurface> implements Setup, CellFeature
 	public static boolean enableSourcesOnly = false;
 	public static boolean disableClean = false;
 
+	public static boolean enableIncrementalRender = false;
+
 	public static Waves sourceOverride = null;
 
 	private int sampleRate;
@@ -104,6 +108,7 @@ public class AudioScene<T extends ShadableSurface> implements Setup, CellFeature
 	private ChordProgressionManager progression;
 	private PatternSystemManager patterns;
 	private PackedCollection<?> patternDestination;
+	private int renderVersion;
 
 	private CombinedGenome genome;
 	private DefaultAudioGenome legacyGenome;
@@ -160,6 +165,7 @@ public class AudioScene<T extends ShadableSurface> implements Setup, CellFeature
 
 	public void setTuning(KeyboardTuning tuning) {
 		patterns.setTuning(tuning);
+		invalidateRender();
 	}
 
 	public Animation<T> getScene() { return scene; }
@@ -261,11 +267,13 @@ public class AudioScene<T extends ShadableSurface> implements Setup, CellFeature
 		settings.getSections().forEach(s -> sections.addSection(s.getPosition(), s.getLength()));
 		progression.setSettings(settings.getChordProgression());
 		patterns.setSettings(settings.getPatternSystem());
+		invalidateRender();
 	}
 
 	public void setWaves(Waves waves) {
 		this.sources = waves;
 		sourcesListener.forEach(l -> l.accept(sources));
+		invalidateRender();
 	}
 
 	// This is needed because AudioScene doesn't manage save
@@ -273,8 +281,16 @@ public class AudioScene<T extends ShadableSurface> implements Setup, CellFeature
 	@Deprecated
 	public void triggerSourcesChange() {
 		sourcesListener.forEach(l -> l.accept(sources));
+		invalidateRender();
 	}
 
+	/**
+	 * Discard the audio retained by {@link #enableIncrementalRender}, so that every channel
+	 * is rendered again during the next setup. This should be called after any change to the
+	 * scene that is not reflected in the genome, such as a change to the pattern choices.
+	 */
+	public void invalidateRender() { renderVersion++; }
+
 	protected void triggerDurationChange() {
 		durationListeners.forEach(l -> l.accept(getTotalDuration()));
 	}
@@ -313,6 +329,13 @@ public class AudioScene<T extends ShadableSurface> implements Setup, CellFeature
 		OperationList patternSetup = new OperationList("PatternChannel Setup");
 		patternSetup.add(() -> () -> patterns.setTuning(tuning));
 		patternSetup.add(sections.setup());
+
+		if (enableIncrementalRender) {
+			patternSetup.add(getIncrementalPatternSetup(channel, audio));
+			setup.add(patternSetup);
+			return w(c(getTotalDuration()), new WaveData(audio, getSampleRate()));
+		}
+
 		patternSetup.add(getPatternSetup(List.of(channel)));
 		patternSetup.add(() -> () -> audio.setMem(0, patternDestination, 0, patternDestination.getMemLength()));
 		sections.getChannelSections(channel).stream()
@@ -328,6 +351,82 @@ public class AudioScene<T extends ShadableSurface> implements Setup, CellFeature
 		return w(c(getTotalDuration()), new WaveData(audio, getSampleRate()));
 	}
 
+	/**
+	 * Render the patterns for the specified channel and process its sections, skipping the
+	 * work that is unaffected by changes to the genome since the previous setup. The patterns
+	 * are only summed again if {@link #getPatternSignature(int)} has changed, in which case every
+	 * section is processed again. Otherwise, only the sections with a different
+	 * {@link ChannelSection#signature()} are restored from the retained pattern audio and
+	 * processed again, and the rest of the channel is left as it was.
+	 */
+	protected Supplier<Runnable> getIncrementalPatternSetup(int channel, PackedCollection<?> audio) {
+		PackedCollection<?> patternAudio = WaveData.allocateCollection(getTotalSamples());
+		List<ChannelSection> channelSections = sections.getChannelSections(channel);
+		String sectionSignatures[] = new String[channelSections.size()];
+		String patternSignature[] = new String[1];
+
+		Supplier<Runnable> sum = getPatternSetup(List.of(channel));
+
+		return () -> {
+			Runnable sumPatterns = sum.get();
+
+			List<Runnable> process = new ArrayList<>();
+			List<Runnable> restore = new ArrayList<>();
+
+			for (ChannelSection section : channelSections) {
+				int pos = section.getPosition() * getMeasureSamples();
+				int len = section.getLength() * getMeasureSamples();
+				PackedCollection<?> sectionAudio = audio.range(new TraversalPolicy(len), pos);
+				process.add(section.process(p(sectionAudio), p(sectionAudio)).get());
+				restore.add(() -> audio.setMem(pos, patternAudio, pos, len));
+			}
+
+			return () -> {
+				String signature = getPatternSignature(channel);
+				boolean render = !signature.equals(patternSignature[0]);
+
+				if (render) {
+					sumPatterns.run();
+					patternAudio.setMem(0, patternDestination, 0, patternDestination.getMemLength());
+					audio.setMem(0, patternAudio, 0, patternAudio.getMemLength());
+					patternSignature[0] = signature;
+				}
+
+				for (int i = 0; i < channelSections.size(); i++) {
+					String s = channelSections.get(i).signature();
+					if (!render && s != null && s.equals(sectionSignatures[i])) continue;
+
+					if (!render) restore.get(i).run();
+					process.get(i).run();
+					sectionSignatures[i] = s;
+				}
+			};
+		};
+	}
+
+	/**
+	 * A description of everything that determines the pattern audio for the specified channel,
+	 * before the sections are processed. This includes the genes of every pattern for the
+	 * channel and, if any of those patterns are melodic, the genes of the chord progression.
+	 */
+	protected String getPatternSignature(int channel) {
+		StringBuilder signature = new StringBuilder();
+		signature.append(renderVersion).append(":").append(getBPM()).append(":");
+		signature.append(getMeasureSize()).append(":").append(getTotalMeasures()).append(":");
+		signature.append(getTotalSamples()).append(":").append(patterns.getChoices().size());
+
+		boolean melodic = false;
+
+		for (PatternLayerManager pattern : patterns.getPatterns()) {
+			if (pattern.getChannel() != channel) continue;
+			signature.append("|").append(pattern.signature());
+			melodic |= pattern.isMelodic();
+		}
+
+		if (melodic) signature.append("|").append(progression.signature());
+		return signature.toString();
+	}
+
 	public Supplier<Runnable> getPatternSetup() { return getPatternSetup(null); }
 
 	public Supplier<Runnable> getPatternSetup(List<Integer> channels) {
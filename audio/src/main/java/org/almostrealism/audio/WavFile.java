@@ -23,6 +23,11 @@ import org.almostrealism.hardware.ctx.ContextSpecific;
 import org.almostrealism.hardware.ctx.DefaultContextSpecific;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -35,6 +40,10 @@ public class WavFile {
 	}
 
 	private final static int BUFFER_SIZE = 4096;
+	private final static int MAPPED_CHUNK_FRAMES = 65536;
+	private final static int BLOCK_FRAMES = 65536;
+
+	private final static ThreadLocal<ByteBuffer> blockBuffer = new ThreadLocal<>();
 
 	private final static int FMT_CHUNK_ID = 0x20746D66;
 	private final static int DATA_CHUNK_ID = 0x61746164;
@@ -50,6 +59,8 @@ public class WavFile {
 	private double floatScale;                // Scaling factor used for int <-> float conversion
 	private double floatOffset;            // Offset factor used for int <-> float conversion
 	private boolean wordAlignAdjust;        // Specify if an extra byte at the end of the data chunk is required for word alignment
+	private long dataOffset;                // Position of the first sample in the data chunk, used for mapped reads
+	private boolean streaming;                // Specify if the chunk sizes are unknown until the file is closed
 
 	// Wav Header
 	private int numChannels;                // 2 bytes unsigned, 0x0001 (1) to 0xFFFF (65,535)
@@ -178,6 +189,18 @@ public class WavFile {
 		return wavFile;
 	}
 
+	/**
+	 * Create a {@link WavFile} for writing when the number of frames is not known in advance.
+	 * Frames can be written until the maximum size of a wav file is reached, and the chunk
+	 * sizes in the header are updated by {@link #updateHeader()} and on {@link #close()}.
+	 */
+	public static WavFile newStreamingWavFile(File file, int numChannels, int validBits, long sampleRate) throws IOException {
+		WavFile wavFile = newWavFile(file, numChannels, 0, validBits, sampleRate);
+		wavFile.streaming = true;
+		wavFile.numFrames = (0xFFFFFFFFL - 36) / wavFile.blockAlign;
+		return wavFile;
+	}
+
 	public static PackedCollection<?> channel(double[][] data, int chan) {
 		// System.out.println("WavFile: Allocating " + data[chan].length / OutputLine.sampleRate + " seconds");
 
@@ -218,6 +241,7 @@ public class WavFile {
 		// Read the first 12 bytes of the file
 		int bytesRead = wavFile.iStream.read(wavFile.buffer, 0, 12);
 		if (bytesRead != 12) throw new IOException("Not enough wav file bytes for header");
+		long position = 12;
 
 		// Extract parts from the header
 		long riffChunkID = getLE(wavFile.buffer, 0, 4);
@@ -242,6 +266,7 @@ public class WavFile {
 			bytesRead = wavFile.iStream.read(wavFile.buffer, 0, 8);
 			if (bytesRead == -1) throw new IOException("Reached end of file without finding format chunk");
 			if (bytesRead != 8) throw new IOException("Could not read chunk header");
+			position += 8;
 
 			// Extract the chunk ID and Size
 			long chunkID = getLE(wavFile.buffer, 0, 4);
@@ -287,6 +312,7 @@ public class WavFile {
 				// any extra format bytes
 				numChunkBytes -= 16;
 				if (numChunkBytes > 0) wavFile.iStream.skip(numChunkBytes);
+				position += 16 + Math.max(numChunkBytes, 0);
 			} else if (chunkID == DATA_CHUNK_ID) {
 				// Check if we've found the format chunk,
 				// If not, throw an exception as we need the format information
@@ -303,11 +329,13 @@ public class WavFile {
 
 				// Flag that we've found the wave data chunk
 				foundData = true;
+				wavFile.dataOffset = position;
 
 				break;
 			} else {
 				// If an unknown chunk ID is found, just skip over the chunk data
 				wavFile.iStream.skip(numChunkBytes);
+				position += numChunkBytes;
 			}
 		}
 
@@ -642,6 +670,222 @@ public class WavFile {
 	}
 
 
+	// Block Writing
+	// -------------
+	public int writeMonoFrames(PackedCollection<?> values, int offset, int numFramesToWrite) throws IOException {
+		int total = 0;
+
+		while (total < numFramesToWrite) {
+			int length = Math.min(BLOCK_FRAMES, numFramesToWrite - total);
+			int written = writeMonoFrames(values.toArray(offset + total, length), 0, length);
+			total += written;
+			if (written < length) break;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Write the specified values as complete frames, repeating each value for every
+	 * channel. Rather than going through {@link #writeSample(long)}, the samples are
+	 * encoded in large blocks into a reusable direct buffer and written through the
+	 * {@link FileChannel} of the output stream. The resulting bytes are identical to
+	 * writing the same value to every channel with {@link #writeFrames(double[][], int)}.
+	 */
+	public int writeMonoFrames(double[] values, int offset, int numFramesToWrite) throws IOException {
+		if (readerState != ReaderState.WRITING) throw new IOException("Cannot write to WavFile instance");
+
+		numFramesToWrite = (int) Math.min(numFramesToWrite, numFrames - frameCounter);
+		if (numFramesToWrite <= 0) return 0;
+
+		// Anything still in the local buffer must reach the file first
+		if (bufferPointer > 0) {
+			oStream.write(buffer, 0, bufferPointer);
+			bufferPointer = 0;
+		}
+
+		FileChannel out = oStream.getChannel();
+		ByteBuffer buf = blockBuffer(Math.min(numFramesToWrite, BLOCK_FRAMES) * blockAlign);
+
+		for (int f = 0; f < numFramesToWrite; f++) {
+			if (buf.remaining() < blockAlign) {
+				buf.flip();
+				while (buf.hasRemaining()) out.write(buf);
+				buf.clear();
+			}
+
+			long val = (long) (floatScale * (floatOffset + values[offset + f]));
+
+			for (int c = 0; c < numChannels; c++) {
+				long v = val;
+
+				for (int b = 0; b < bytesPerSample; b++) {
+					buf.put((byte) (v & 0xFF));
+					v >>= 8;
+				}
+			}
+		}
+
+		buf.flip();
+		while (buf.hasRemaining()) out.write(buf);
+		buf.clear();
+
+		frameCounter += numFramesToWrite;
+		return numFramesToWrite;
+	}
+
+	private static ByteBuffer blockBuffer(int size) {
+		ByteBuffer buf = blockBuffer.get();
+
+		if (buf == null || buf.capacity() < size) {
+			buf = ByteBuffer.allocateDirect(Math.max(size, BLOCK_FRAMES * 8));
+			blockBuffer.set(buf);
+		}
+
+		buf.clear();
+		buf.limit(size);
+		return buf;
+	}
+
+	/**
+	 * Write the sizes of the data written so far into the header of a streaming file,
+	 * so that the file is valid even if it is never closed.
+	 */
+	public void updateHeader() throws IOException {
+		if (readerState != ReaderState.WRITING) throw new IOException("Cannot write to WavFile instance");
+		if (!streaming) return;
+
+		if (bufferPointer > 0) {
+			oStream.write(buffer, 0, bufferPointer);
+			bufferPointer = 0;
+		}
+
+		long dataChunkSize = blockAlign * frameCounter;
+		long mainChunkSize = 36 + dataChunkSize;
+		if (dataChunkSize % 2 == 1 && numFrames == frameCounter) mainChunkSize += 1;
+
+		byte header[] = new byte[4];
+		FileChannel out = oStream.getChannel();
+
+		putLE(mainChunkSize, header, 0, 4);
+		out.write(ByteBuffer.wrap(header), 4);
+
+		putLE(dataChunkSize, header, 0, 4);
+		out.write(ByteBuffer.wrap(header), 40);
+	}
+
+	// Memory Mapped Reading
+	// ---------------------
+	public boolean isMappable() {
+		return readerState == ReaderState.READING && bytesPerSample <= 4 && blockAlign * numFrames <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * The number of frames that are actually present in the file, which is fewer than
+	 * {@link #getNumFrames()} if the file was truncated after the header was written.
+	 */
+	public long getAvailableFrames() {
+		return availableFrames(file.length());
+	}
+
+	private long availableFrames(long fileSize) {
+		return Math.max(0, Math.min(numFrames, (fileSize - dataOffset) / blockAlign));
+	}
+
+	/**
+	 * Decode one channel of the data chunk directly into a {@link PackedCollection}, using
+	 * a read-only memory mapping of the file rather than the buffered input stream. The
+	 * samples are converted to the same normalised values produced by
+	 * {@link #readFrames(double[][], int)}, but without the intermediate array for every
+	 * channel. This does not depend on, or change, the position of the stream reader.
+	 * If the file is shorter than its header indicates, only the frames that are present
+	 * are decoded.
+	 */
+	public PackedCollection<?> readChannel(int chan) throws IOException {
+		if (!isMappable()) throw new IOException("Cannot map WavFile instance");
+		if (chan < 0 || chan >= numChannels) throw new IOException("Illegal channel " + chan);
+
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			int frames = (int) availableFrames(fc.size());
+
+			PackedCollection<?> waveform = Optional.ofNullable(WaveData.getCollectionHeap())
+					.map(h -> h.allocate(frames)).orElseGet(() -> new PackedCollection(frames));
+
+			MappedByteBuffer data = fc.map(FileChannel.MapMode.READ_ONLY, dataOffset, (long) blockAlign * frames);
+			data.order(ByteOrder.LITTLE_ENDIAN);
+
+			double chunk[] = new double[Math.min(frames, MAPPED_CHUNK_FRAMES)];
+
+			for (int start = 0; start < frames; start += chunk.length) {
+				int length = Math.min(chunk.length, frames - start);
+				if (length < chunk.length) chunk = new double[length];
+
+				int pos = start * blockAlign + chan * bytesPerSample;
+
+				for (int f = 0; f < length; f++) {
+					chunk[f] = floatOffset + (double) mappedSample(data, pos) / floatScale;
+					pos += blockAlign;
+				}
+
+				waveform.setMem(start, chunk);
+			}
+
+			return waveform;
+		}
+	}
+
+	/**
+	 * Decode one channel of the data chunk into a {@link ScalarBank} of the integer sample
+	 * values, which is equivalent to {@link #channelScalar(int[][], int)} of the result of
+	 * {@link #readFrames(int[][], int)} without reading every channel into an array first.
+	 * Like {@link #readFrames(int[][], int)}, this reads the remaining frames, starting from
+	 * the current position, and leaves none remaining. If the file cannot be mapped, the
+	 * frames are read from the stream instead.
+	 */
+	public ScalarBank readChannelScalar(int chan) throws IOException {
+		if (!isMappable()) {
+			int[][] wave = new int[numChannels][(int) getFramesRemaining()];
+			readFrames(wave, 0, (int) getFramesRemaining());
+			return channelScalar(wave, chan);
+		}
+
+		if (chan < 0 || chan >= numChannels) throw new IOException("Illegal channel " + chan);
+
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			int frames = (int) Math.max(0, availableFrames(fc.size()) - frameCounter);
+			ScalarBank waveform = new ScalarBank(frames);
+
+			MappedByteBuffer data = fc.map(FileChannel.MapMode.READ_ONLY,
+					dataOffset + blockAlign * frameCounter, (long) blockAlign * frames);
+			data.order(ByteOrder.LITTLE_ENDIAN);
+
+			int pos = chan * bytesPerSample;
+
+			for (int f = 0; f < frames; f++) {
+				waveform.set(f, (double) (int) mappedSample(data, pos));
+				pos += blockAlign;
+			}
+
+			frameCounter = numFrames;
+			return waveform;
+		}
+	}
+
+	private long mappedSample(MappedByteBuffer data, int pos) {
+		switch (bytesPerSample) {
+			case 1:
+				return data.get(pos) & 0xFF;
+			case 2:
+				return data.getShort(pos);
+			case 3:
+				return (data.get(pos) & 0xFF) | ((data.get(pos + 1) & 0xFF) << 8) | (data.get(pos + 2) << 16);
+			case 4:
+				return data.getInt(pos);
+			default:
+				throw new UnsupportedOperationException();
+		}
+	}
+
 	public void close() throws IOException {
 		// Close the input stream and set to null
 		if (iStream != null) {
@@ -652,10 +896,19 @@ public class WavFile {
 		if (oStream != null) {
 			// Write out anything still in the local buffer
 			if (bufferPointer > 0) oStream.write(buffer, 0, bufferPointer);
+			bufferPointer = 0;
+
+			// The size of a streaming file is only known now
+			if (streaming) {
+				numFrames = frameCounter;
+				wordAlignAdjust = (blockAlign * numFrames) % 2 == 1;
+			}
 
 			// If an extra byte is required for word alignment, add it to the end
 			if (wordAlignAdjust) oStream.write(0);
 
+			if (streaming) updateHeader();
+
 			// Close the stream and set to null
 			oStream.close();
 			oStream = null;
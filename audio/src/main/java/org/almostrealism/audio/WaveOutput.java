@@ -53,10 +53,12 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 	public static boolean enableKernelExport = true;
 
 	public static int defaultTimelineFrames = (int) (OutputLine.sampleRate * 180);
+	public static int writeBlockFrames = 65536;
+	public static int defaultStreamingFrames = 4 * OutputLine.sampleRate;
 
 	public static ContextSpecific<PackedCollection<PackedCollection<?>>> timeline;
 	public static ContextSpecific<ScalarBank> timelineScalar;
-	private static KernelizedEvaluable<PackedCollection<?>> exportKernel;
+	private static ThreadLocal<KernelizedEvaluable<PackedCollection<?>>> exportKernel;
 	private static Provider<ScalarBank> exportSource;
 
 	static {
@@ -80,12 +82,16 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 				}, PackedCollection::destroy);
 		timeline.init();
 
-		PairFromPairBank pairAt = new PairFromPairBank((Producer) Ops.ops().v(ScalarBank.class, 0, -1),
-				Ops.ops().v(OutputLine.sampleRate).multiply(Ops.ops().v(Scalar.class, 1)).add(Ops.ops().v(1.0)));
-//		PairFromPairBank pairAt = new PairFromPairBank((Producer) () -> exportSource,
-//				Ops.ops().v(OutputLine.sampleRate).multiply(Ops.ops().v(Scalar.class, 1)).add(Ops.ops().v(1.0)));
-		ExpressionComputation r = new ExpressionComputation<>(List.of(args -> args.get(1).getValue(0)), (Producer) pairAt.r());
-		exportKernel = r.get();
+		// Scenes may be rendered by several threads at once (see AudioScenePopulationPool),
+		// and a compiled kernel cannot be evaluated by more than one of them at a time
+		exportKernel = ThreadLocal.withInitial(() -> {
+			PairFromPairBank pairAt = new PairFromPairBank((Producer) Ops.ops().v(ScalarBank.class, 0, -1),
+					Ops.ops().v(OutputLine.sampleRate).multiply(Ops.ops().v(Scalar.class, 1)).add(Ops.ops().v(1.0)));
+//			PairFromPairBank pairAt = new PairFromPairBank((Producer) () -> exportSource,
+//					Ops.ops().v(OutputLine.sampleRate).multiply(Ops.ops().v(Scalar.class, 1)).add(Ops.ops().v(1.0)));
+			ExpressionComputation r = new ExpressionComputation<>(List.of(args -> args.get(1).getValue(0)), (Producer) pairAt.r());
+			return r.get();
+		});
 	}
 
 	private Supplier<File> file;
@@ -97,6 +103,12 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 	private AcceleratedTimeSeries data;
 	private Runnable reset;
 
+	private boolean streaming;
+	private File streamFile;
+	private int consumedFrames, flushedFrames;
+	private double heldFrame;
+	private boolean held;
+
 	public WaveOutput() { this(null); }
 
 	public WaveOutput(File f) {
@@ -125,6 +137,24 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 		this.reset = a(2, p(cursor), pair(0.0, 1.0)).get();
 	}
 
+	/**
+	 * Create a {@link WaveOutput} which only retains the frames that have not yet been
+	 * written, in a series of at most {@link #defaultStreamingFrames}. The frames must be
+	 * written to disk periodically using {@link #flush()}, and the file is completed by
+	 * {@link #write()}. The completed file contains the same frames that {@link #write()}
+	 * would produce for a {@link WaveOutput} that is not streaming. If the output is reset
+	 * before it is completed, the partial file is deleted.
+	 */
+	public static WaveOutput streaming(Supplier<File> f, int bits) {
+		WaveOutput out = new WaveOutput(f, defaultStreamingFrames, bits);
+		out.streaming = true;
+		return out;
+	}
+
+	public boolean isStreaming() { return streaming; }
+
+	public int getStreamingCapacity() { return streaming ? defaultStreamingFrames : -1; }
+
 	public CursorPair getCursor() { return cursor; }
 
 	public AcceleratedTimeSeries getData() { return data; }
@@ -142,6 +172,10 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 	}
 
 	public Supplier<Runnable> export(PackedCollection<?> destination) {
+		if (streaming) {
+			throw new UnsupportedOperationException("Frames are not retained by a streaming WaveOutput");
+		}
+
 		if (enableKernelExport) {
 			Runnable export = () -> {
 				long start = System.currentTimeMillis();
@@ -150,7 +184,7 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 //				pairAt.r().get().kernelEvaluate(destination, new MemoryBank[]{timeline.getValue()});
 
 				exportSource = new Provider(data);
-				exportKernel.kernelEvaluate(destination, new MemoryBank[] { data, timelineScalar.getValue() });
+				exportKernel.get().kernelEvaluate(destination, new MemoryBank[] { data, timelineScalar.getValue() });
 				if (enableVerbose)
 					System.out.println("WaveOutput: Wrote " + defaultTimelineFrames + " frames in " + (System.currentTimeMillis() - start) + " msec");
 			};
@@ -188,8 +222,107 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 		}
 	}
 
+	/**
+	 * Append the frames which have been pushed since the last flush to the output file,
+	 * creating it if necessary, and release them from the series. The most recent frame
+	 * is held back until the next flush, because {@link #write()} omits the final frame.
+	 */
+	public Supplier<Runnable> flush() {
+		if (!streaming) {
+			throw new UnsupportedOperationException("Only a streaming WaveOutput can be flushed");
+		}
+
+		return () -> () -> {
+			int frames = (int) cursor.left() - consumedFrames;
+			if (frames <= 0) return;
+
+			// The first entry of the series is reserved, and each
+			// entry is a pair of time and value
+			double series[] = data.toArray(2, 2 * frames);
+
+			int offset = held ? 1 : 0;
+			double values[] = new double[frames + offset];
+			if (held) values[0] = heldFrame;
+			for (int i = 0; i < frames; i++) values[i + offset] = series[2 * i + 1];
+
+			consumedFrames += frames;
+			data.reset();
+
+			heldFrame = values[values.length - 1];
+			held = true;
+
+			int length = values.length - 1;
+			if (length <= 0) return;
+
+			try {
+				if (wav == null) {
+					streamFile = file.get();
+					wav = WavFile.newStreamingWavFile(streamFile, 2, bits, sampleRate);
+				}
+
+				for (int pos = 0; pos < length; pos += writeBlockFrames) {
+					wav.writeMonoFrames(values, pos, Math.min(writeBlockFrames, length - pos));
+				}
+
+				wav.updateHeader();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+
+			flushedFrames += length;
+		};
+	}
+
+	private void writeFrames(int frames) throws IOException {
+		double values[] = new double[Math.min(frames, writeBlockFrames)];
+
+		for (int pos = 0; pos < frames; pos += values.length) {
+			int length = Math.min(values.length, frames - pos);
+
+			// The first entry of the series is reserved, and each
+			// entry is a pair of time and value
+			double series[] = data.toArray(2 * (pos + 1), 2 * length);
+			for (int i = 0; i < length; i++) values[i] = series[2 * i + 1];
+
+			wav.writeMonoFrames(values, 0, length);
+		}
+	}
+
+	/**
+	 * Close the streaming file, deleting it unless it is complete.
+	 */
+	private void closeStream(boolean complete) {
+		if (wav == null) return;
+
+		try {
+			wav.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		if (!complete && streamFile != null && streamFile.delete() && enableVerbose) {
+			System.out.println("WaveOutput: Deleted incomplete " + streamFile);
+		}
+
+		wav = null;
+		streamFile = null;
+	}
+
 	public Supplier<Runnable> write() {
-		// TODO  Write frames in larger batches than 1
+		if (streaming) {
+			return () -> {
+				Runnable flush = flush().get();
+
+				return () -> {
+					long start = System.currentTimeMillis();
+					flush.run();
+					closeStream(true);
+
+					if (enableVerbose) System.out.println("WaveOutput: Completed " + flushedFrames + " frames in " + (System.currentTimeMillis() - start) + " msec");
+				};
+			};
+		}
+
 		return () -> () -> {
 			int frames = (int) cursor.left() - 1;
 
@@ -209,15 +342,10 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 				return;
 			}
 
-			for (int i = 0; i < frames; i++) {
-				// double value = data.valueAt(i).getValue();
-				double value = data.get(i + 1).getValue();
-
-				try {
-					wav.writeFrames(new double[][]{{value}, {value}}, 1);
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
+			try {
+				writeFrames(frames);
+			} catch (IOException e) {
+				e.printStackTrace();
 			}
 
 			try {
@@ -257,5 +385,12 @@ public class WaveOutput implements Receptor<PackedCollection<?>>, Lifecycle, Cod
 		cursor.setDelayCursor(1);
 //		reset.run();
 		data.reset();
+
+		if (streaming) {
+			closeStream(false);
+			consumedFrames = 0;
+			flushedFrames = 0;
+			held = false;
+		}
 	}
 }
@@ -167,7 +167,7 @@ public class Waves implements TempoAware, CellFeatures {
 
 		files.stream().map(file -> {
 					try {
-						Waves waves = Waves.loadAudio(file, w -> w.getSampleRate() == OutputLine.sampleRate);
+						Waves waves = Waves.loadAudio(file, Waves::isSupportedSampleRate);
 						waves.setChoices(choices);
 						return waves;
 					} catch (UnsupportedOperationException | IOException e) {
@@ -194,7 +194,7 @@ public class Waves implements TempoAware, CellFeatures {
 
 		files.stream().map(file -> {
 					try {
-						Waves wav = Waves.loadAudio(file, w -> w.getSampleRate() == OutputLine.sampleRate);
+						Waves wav = Waves.loadAudio(file, Waves::isSupportedSampleRate);
 						wav.getChoices().getChoices().addAll(choices);
 						return wav;
 					} catch (UnsupportedOperationException | IOException e) {
@@ -250,13 +250,22 @@ public class Waves implements TempoAware, CellFeatures {
 		WavFile w = WavFile.openWavFile(f);
 		if (w.getNumFrames() >= Integer.MAX_VALUE) throw new UnsupportedOperationException();
 		if (!validator.test(w)) throw new IOException();
+		w.close();
 
-		double data[][] = new double[w.getNumChannels()][(int) w.getNumFrames()];
-		w.readFrames(data, (int) w.getFramesRemaining());
+		// The samples are only decoded when they are needed, so make sure they are present
+		if (w.getAvailableFrames() < w.getNumFrames()) throw new IOException(f + " is incomplete");
 
 		return new Waves(f.getCanonicalPath(), new WaveSet(new FileWaveDataProvider(f.getCanonicalPath())));
 	}
 
+	/**
+	 * Returns true if the audio in the specified file can be used, either because its sample
+	 * rate is {@link OutputLine#sampleRate} or because it will be resampled when it is loaded.
+	 */
+	public static boolean isSupportedSampleRate(WavFile w) {
+		return w.getSampleRate() == OutputLine.sampleRate || FileWaveDataProvider.enableResampling;
+	}
+
 	public static boolean isValid(File f, Predicate<WavFile> validator) {
 		try {
 			validate(f, validator);
@@ -26,4 +26,11 @@ public interface ChannelSection {
 	int getLength();
 
 	Supplier<Runnable> process(Producer<PackedCollection<?>> destination, Producer<PackedCollection<?>> source);
+
+	/**
+	 * A description of everything that determines the result of {@link #process(Producer, Producer)},
+	 * which can be compared with a previous signature to determine whether the section must be
+	 * processed again. If this returns null, the section is always processed.
+	 */
+	default String signature() { return null; }
 }
@@ -33,15 +33,21 @@ import java.util.function.Supplier;
 public class DefaultChannelSection implements ChannelSection, CodeFeatures {
 	private int position, length;
 
+	private SimpleChromosome chromosome;
 	private LinearInterpolationChromosome interpolation;
+	private DoubleSupplier measureDuration;
 	private int geneIndex;
 
 	public DefaultChannelSection() { }
 
-	protected DefaultChannelSection(int position, int length, LinearInterpolationChromosome interpolation, int geneIndex) {
+	protected DefaultChannelSection(int position, int length, SimpleChromosome chromosome,
+									LinearInterpolationChromosome interpolation,
+									DoubleSupplier measureDuration, int geneIndex) {
 		this.position = position;
 		this.length = length;
+		this.chromosome = chromosome;
 		this.interpolation = interpolation;
+		this.measureDuration = measureDuration;
 		this.geneIndex = geneIndex;
 	}
 
@@ -62,6 +68,17 @@ public class DefaultChannelSection implements ChannelSection, CodeFeatures {
 									interpolation.getKernelList(0).valueAt(geneIndex));
 	}
 
+	@Override
+	public String signature() {
+		StringBuilder signature = new StringBuilder();
+		signature.append(position).append(":").append(length).append(":");
+		signature.append(measureDuration.getAsDouble());
+
+		double values[] = chromosome.getParameters(geneIndex).toArray(0, LinearInterpolationChromosome.SIZE);
+		for (double v : values) signature.append(":").append(v);
+		return signature.toString();
+	}
+
 	public static class Factory implements Setup {
 		private ConfigurableGenome genome;
 		private SimpleChromosome chromosome;
@@ -93,7 +110,7 @@ public class DefaultChannelSection implements ChannelSection, CodeFeatures {
 
 		public DefaultChannelSection createSection(int position) {
 			if (channel >= channels) throw new IllegalArgumentException();
-			return new DefaultChannelSection(position, length, interpolation, channel++);
+			return new DefaultChannelSection(position, length, chromosome, interpolation, measureDuration, channel++);
 		}
 
 		@Override
@@ -21,13 +21,31 @@ import org.almostrealism.algebra.Pair;
 import org.almostrealism.algebra.PairBank;
 import org.almostrealism.algebra.PairBankEvaluable;
 import org.almostrealism.hardware.AcceleratedEvaluable;
+import org.almostrealism.hardware.MemoryBank;
+import org.almostrealism.hardware.MemoryData;
+import org.almostrealism.Ops;
 
 import java.util.function.Supplier;
 
+/**
+ * A {@link ComplexFFT} computes the discrete Fourier transform of a {@link PairBank}
+ * of complex values using the native "transform" function. The inverse transform is
+ * computed with the same (forward) kernel, by conjugating the input and output and
+ * scaling the result by 1 / count, so that a forward transform followed by an inverse
+ * transform returns the original values. The inverse transform is only available using
+ * {@link #evaluate(Object...)}, because the conjugation is not part of the kernel.
+ * <br>
+ * The kernel retains its intermediate memory, so evaluations are serialised, and
+ * {@link FFTPlanCache} provides compiled instances that are shared by every thread.
+ */
 public class ComplexFFT extends AcceleratedEvaluable<PairBank, PairBank> implements PairBankEvaluable {
+	private final int count;
+	private final boolean forward;
+	private final Evaluable<? extends PairBank> inverseInput;
+
 	public ComplexFFT(int count, boolean forward, Supplier<Evaluable<? extends PairBank>> input) {
 		super("transform", () -> args -> new PairBank(count),
-				new Supplier[] { input }, config(count, forward));
+				new Supplier[] { forward ? input : Ops.ops().v(2 * count, 0) }, config(count, true));
 		int powerOfTwo = 31 - Integer.numberOfLeadingZeros(count);
 
 		if (1 << powerOfTwo != count) {
@@ -35,10 +53,44 @@ public class ComplexFFT extends AcceleratedEvaluable<PairBank, PairBank> impleme
 								count + " bins (use " + (1 << powerOfTwo) + ")");
 		}
 
+		this.count = count;
+		this.forward = forward;
+		this.inverseInput = forward ? null : input.get();
+	}
+
+	public boolean isForward() { return forward; }
+
+	@Override
+	public synchronized PairBank evaluate(Object... args) {
+		if (forward) return super.evaluate(args);
+
+		PairBank in = conjugate(inverseInput.evaluate(args), new PairBank(count), 1.0);
+		PairBank out = super.evaluate(in);
+		return conjugate(out, out, 1.0 / count);
+	}
+
+	@Override
+	public synchronized void kernelEvaluate(MemoryBank output, MemoryData... args) {
 		if (!forward) {
-			// TODO  Support backward
-			throw new UnsupportedOperationException();
+			throw new UnsupportedOperationException("The inverse transform is only available using evaluate");
 		}
+
+		super.kernelEvaluate(output, args);
+	}
+
+	/**
+	 * Write the complex conjugate of each value, multiplied by the specified scale, to the output.
+	 */
+	private PairBank conjugate(PairBank in, PairBank out, double scale) {
+		double values[] = in.toArray(0, 2 * count);
+
+		for (int i = 0; i < count; i++) {
+			values[2 * i] = scale * values[2 * i];
+			values[2 * i + 1] = -scale * values[2 * i + 1];
+		}
+
+		out.setMem(0, values);
+		return out;
 	}
 
 	private static Object[] config(int count, boolean forward) {
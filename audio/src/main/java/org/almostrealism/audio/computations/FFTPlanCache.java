@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.computations;
+
+import org.almostrealism.Ops;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link FFTPlanCache} retains compiled transforms for the life of the process, so that
+ * code which needs a transform of a size (and direction) that has already been used does not
+ * need to build and compile it again. Every {@link ComplexFFT} and {@link SplitRadixFFT}
+ * takes the values to transform as its first argument.
+ * <br>
+ * There is only one transform for each size and direction, which is shared by every thread.
+ * The transforms retain their own intermediate memory, so each of them serialises its
+ * evaluations, and every evaluation produces its own result.
+ *
+ * @author  Michael Murray
+ */
+public class FFTPlanCache {
+	private static final Map<Plan, ComplexFFT> complex = new ConcurrentHashMap<>();
+	private static final Map<Plan, SplitRadixFFT> splitRadix = new ConcurrentHashMap<>();
+	private static final Map<Integer, RealFFT> real = new ConcurrentHashMap<>();
+
+	private FFTPlanCache() { }
+
+	/**
+	 * Returns the {@link ComplexFFT} for the specified number of bins and direction.
+	 */
+	public static ComplexFFT complex(int bins, boolean forward) {
+		return complex.computeIfAbsent(new Plan(bins, forward),
+				p -> new ComplexFFT(bins, forward, Ops.ops().v(2 * bins, 0)));
+	}
+
+	/**
+	 * Returns the {@link SplitRadixFFT} for the specified number of bins and direction,
+	 * which is compiled when it is created.
+	 */
+	public static SplitRadixFFT splitRadix(int bins, boolean forward) {
+		return splitRadix.computeIfAbsent(new Plan(bins, forward), p -> new SplitRadixFFT(bins, forward));
+	}
+
+	/**
+	 * Returns the (forward) {@link RealFFT} for the specified number of real values.
+	 */
+	public static RealFFT real(int size) {
+		return real.computeIfAbsent(size, RealFFT::new);
+	}
+
+	/**
+	 * The number of transforms retained.
+	 */
+	public static int getPlanCount() { return complex.size() + splitRadix.size() + real.size(); }
+
+	private static class Plan {
+		private final int bins;
+		private final boolean forward;
+
+		Plan(int bins, boolean forward) {
+			this.bins = bins;
+			this.forward = forward;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Plan)) return false;
+			Plan p = (Plan) o;
+			return bins == p.bins && forward == p.forward;
+		}
+
+		@Override
+		public int hashCode() { return Objects.hash(bins, forward); }
+	}
+}
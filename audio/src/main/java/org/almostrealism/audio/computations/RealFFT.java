@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.computations;
+
+import org.almostrealism.algebra.PairBank;
+
+import java.util.Arrays;
+
+/**
+ * A {@link RealFFT} computes the discrete Fourier transform of N real values using a
+ * {@link ComplexFFT} of N / 2 bins, rather than a {@link ComplexFFT} of N bins where
+ * half of the input is zero. The even and odd samples are packed into the real and
+ * imaginary parts of the input, and the N / 2 + 1 non-redundant bins of the transform
+ * are recovered from the result.
+ * <br>
+ * The input for the {@link ComplexFFT} is retained between transforms, so transforms
+ * are serialised, which allows the instances provided by the {@link FFTPlanCache} to be
+ * shared by every thread.
+ *
+ * @author  Michael Murray
+ */
+public class RealFFT {
+	private final int size;
+	private final ComplexFFT fft;
+	private final PairBank input;
+	private final double cos[], sin[];
+
+	public RealFFT(int size) {
+		int powerOfTwo = 31 - Integer.numberOfLeadingZeros(size);
+
+		if (size < 4 || 1 << powerOfTwo != size) {
+			throw new IllegalArgumentException("RealFFT not supported for " + size + " values");
+		}
+
+		this.size = size;
+		this.fft = FFTPlanCache.complex(size / 2, true);
+		this.input = new PairBank(size / 2);
+		this.cos = new double[size / 2 + 1];
+		this.sin = new double[size / 2 + 1];
+
+		for (int k = 0; k <= size / 2; k++) {
+			cos[k] = Math.cos(2 * Math.PI * k / size);
+			sin[k] = Math.sin(2 * Math.PI * k / size);
+		}
+	}
+
+	/**
+	 * The number of real values transformed.
+	 */
+	public int getSize() { return size; }
+
+	/**
+	 * The number of complex bins produced, N / 2 + 1.
+	 */
+	public int getBins() { return size / 2 + 1; }
+
+	/**
+	 * Transform N real values, starting at the specified offset, returning
+	 * N / 2 + 1 bins as interleaved real and imaginary parts.
+	 */
+	public synchronized double[] transform(double real[], int offset) {
+		int half = size / 2;
+
+		input.setMem(0, Arrays.copyOfRange(real, offset, offset + size));
+		double z[] = fft.evaluate(input).toArray(0, size);
+
+		double out[] = new double[2 * (half + 1)];
+
+		for (int k = 0; k <= half; k++) {
+			int a = 2 * (k % half);
+			int b = 2 * ((half - k) % half);
+
+			// Z[k] and the conjugate of Z[N/2 - k]
+			double ar = z[a], ai = z[a + 1];
+			double br = z[b], bi = -z[b + 1];
+
+			// The transform of the even samples, and the transform of the odd samples
+			double er = 0.5 * (ar + br), ei = 0.5 * (ai + bi);
+			double or = 0.5 * (ai - bi), oi = -0.5 * (ar - br);
+
+			// X[k] = E[k] + exp(-2 pi i k / N) O[k]
+			out[2 * k] = er + cos[k] * or + sin[k] * oi;
+			out[2 * k + 1] = ei + cos[k] * oi - sin[k] * or;
+		}
+
+		return out;
+	}
+
+	/**
+	 * Compute the power (squared magnitude) of each of the N / 2 + 1 bins of the
+	 * transform of N real values, writing them to the output at the specified offset.
+	 */
+	public void powerSpectrum(double real[], int offset, double out[], int outOffset) {
+		double x[] = transform(real, offset);
+
+		for (int k = 0; k < getBins(); k++) {
+			out[outOffset + k] = x[2 * k] * x[2 * k] + x[2 * k + 1] * x[2 * k + 1];
+		}
+	}
+}
@@ -52,8 +52,12 @@ public class SplitRadixFFT implements Evaluable<PairBank>, CodeFeatures {
 		((OperationAdapter) result).compile();
 	}
 
+	/**
+	 * Evaluations are serialised, because the compiled transform retains its
+	 * intermediate memory and instances are shared by the {@link FFTPlanCache}.
+	 */
 	@Override
-	public PairBank evaluate(Object... args) {
+	public synchronized PairBank evaluate(Object... args) {
 		return result.evaluate(args);
 	}
 
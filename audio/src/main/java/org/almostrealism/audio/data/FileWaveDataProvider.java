@@ -18,8 +18,10 @@ package org.almostrealism.audio.data;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import org.almostrealism.audio.OutputLine;
 import org.almostrealism.audio.WavFile;
 import org.almostrealism.audio.WaveOutput;
+import org.almostrealism.audio.feature.Resampler;
 import org.almostrealism.hardware.ctx.ContextSpecific;
 import org.almostrealism.hardware.ctx.DefaultContextSpecific;
 
@@ -30,6 +32,11 @@ import java.util.Map;
 import java.util.function.Supplier;
 
 public class FileWaveDataProvider extends WaveDataProviderAdapter {
+	/**
+	 * If true, audio with a sample rate other than {@link OutputLine#sampleRate}
+	 * is converted to that sample rate when it is loaded.
+	 */
+	public static boolean enableResampling = true;
 
 	private String resourcePath;
 
@@ -56,7 +63,9 @@ public class FileWaveDataProvider extends WaveDataProviderAdapter {
 	@Override
 	public int getCount() {
 		try {
-			long count = WavFile.openWavFile(new File(resourcePath)).getNumFrames();
+			WavFile w = WavFile.openWavFile(new File(resourcePath));
+			long count = w.getNumFrames();
+			if (enableResampling) count = Resampler.getOutputLength(count, (int) w.getSampleRate(), OutputLine.sampleRate);
 			if (count > Integer.MAX_VALUE) throw new UnsupportedOperationException();
 			return (int) count;
 		} catch (IOException e) {
@@ -79,7 +88,18 @@ public class FileWaveDataProvider extends WaveDataProviderAdapter {
 			if (WaveOutput.enableVerbose)
 				System.out.println("WaveDataProvider: Loading " + resourcePath);
 
-			return WaveData.load(new File(resourcePath));
+			WaveData data = WaveData.load(new File(resourcePath));
+
+			if (enableResampling && data.getSampleRate() != OutputLine.sampleRate) {
+				if (WaveOutput.enableVerbose)
+					System.out.println("WaveDataProvider: Resampling " + resourcePath + " from " + data.getSampleRate());
+
+				WaveData resampled = Resampler.resample(data, OutputLine.sampleRate);
+				WaveData.releaseCollection(data.getCollection());
+				return resampled;
+			}
+
+			return data;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -50,6 +50,14 @@ public class ParameterFunction implements Function<ParameterSet, Double> {
 		};
 	}
 
+	/**
+	 * A description of the coefficients of this function, which is
+	 * the same for any two functions that produce the same results.
+	 */
+	public String signature() {
+		return x + "," + y + "," + z + "," + c;
+	}
+
 	public double getX() { return x; }
 	public void setX(double x) { this.x = x; }
 
@@ -29,12 +29,19 @@ import org.almostrealism.hardware.ctx.DefaultContextSpecific;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Optional;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class WaveData {
+	public static boolean enableMappedLoad = true;
+
 	private static ContextSpecific<PackedCollectionHeap> collectionHeap;
+	private static final Map<PackedCollectionHeap, TreeMap<Integer, Deque<PackedCollection>>> released = new IdentityHashMap<>();
 
 	private PackedCollection collection;
 	private int sampleRate;
@@ -86,14 +93,10 @@ public class WaveData {
 			return;
 		}
 
-		for (int i = 0; i < frames; i++) {
-			double value = w.toArray(i, 1)[0];
-
-			try {
-				wav.writeFrames(new double[][]{{value}, {value}}, 1);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		try {
+			wav.writeMonoFrames(w, 0, frames);
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 
 		try {
@@ -106,6 +109,15 @@ public class WaveData {
 	public static WaveData load(File f) throws IOException {
 		WavFile w = WavFile.openWavFile(f);
 
+		if (enableMappedLoad && w.isMappable()) {
+			try {
+				assert w.getNumChannels() > 0;
+				return new WaveData(w.readChannel(0), (int) w.getSampleRate());
+			} finally {
+				w.close();
+			}
+		}
+
 		double[][] wave = new double[w.getNumChannels()][(int) w.getFramesRemaining()];
 		w.readFrames(wave, 0, (int) w.getFramesRemaining());
 
@@ -120,15 +132,80 @@ public class WaveData {
 	public static PackedCollectionHeap getCollectionHeap() { return collectionHeap == null ? null : collectionHeap.getValue(); }
 
 	public static void setCollectionHeap(Supplier<PackedCollectionHeap> create, Consumer<PackedCollectionHeap> destroy) {
-		collectionHeap = new DefaultContextSpecific<>(create, destroy);
+		synchronized (released) {
+			released.clear();
+		}
+
+		collectionHeap = new DefaultContextSpecific<>(create, heap -> {
+			clearReleased(heap);
+			destroy.accept(heap);
+		});
 		collectionHeap.init();
 	}
 
 	public static void dropHeap() {
+		clearReleased(getCollectionHeap());
 		collectionHeap = null;
 	}
 
 	public static PackedCollection allocateCollection(int count) {
-		return Optional.ofNullable(getCollectionHeap()).map(h -> h.allocate(count)).orElse(new PackedCollection(count));
+		PackedCollection reused = reuseCollection(count);
+		if (reused != null) return reused;
+
+		PackedCollectionHeap heap = getCollectionHeap();
+		if (heap == null) return new PackedCollection(count);
+
+		// Notes may be allocated by several threads at once
+		synchronized (heap) {
+			return heap.allocate(count);
+		}
+	}
+
+	/**
+	 * Return a collection obtained from {@link #allocateCollection(int)} which is no longer
+	 * in use, so that its memory can be used by a later allocation. The heap does not support
+	 * freeing memory, so released collections are retained and handed out again (cleared) by
+	 * {@link #allocateCollection(int)} when a request fits. If there is no heap, the collection
+	 * is left to be garbage collected. Released collections are retained separately for the
+	 * heap of each context, and discarded when that heap is destroyed.
+	 */
+	public static void releaseCollection(PackedCollection collection) {
+		PackedCollectionHeap heap = getCollectionHeap();
+		if (collection == null || heap == null) return;
+
+		synchronized (released) {
+			released.computeIfAbsent(heap, h -> new TreeMap<>())
+					.computeIfAbsent(collection.getMemLength(), k -> new ArrayDeque<>()).push(collection);
+		}
+	}
+
+	private static PackedCollection reuseCollection(int count) {
+		PackedCollectionHeap heap = getCollectionHeap();
+		if (heap == null) return null;
+
+		PackedCollection collection;
+
+		synchronized (released) {
+			TreeMap<Integer, Deque<PackedCollection>> available = released.get(heap);
+			if (available == null) return null;
+
+			// Only reuse a collection if it would not waste more than half of its memory
+			Map.Entry<Integer, Deque<PackedCollection>> entry = available.ceilingEntry(count);
+			if (entry == null || entry.getKey() > 2 * count) return null;
+
+			collection = entry.getValue().pop();
+			if (entry.getValue().isEmpty()) available.remove(entry.getKey());
+		}
+
+		collection.clear();
+		return collection.getMemLength() == count ? collection : collection.range(new TraversalPolicy(count));
+	}
+
+	private static void clearReleased(PackedCollectionHeap heap) {
+		if (heap == null) return;
+
+		synchronized (released) {
+			released.remove(heap);
+		}
 	}
 }
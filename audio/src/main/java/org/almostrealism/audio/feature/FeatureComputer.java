@@ -2,6 +2,8 @@ package org.almostrealism.audio.feature;
 
 import org.almostrealism.algebra.ScalarTable;
 import org.almostrealism.audio.computations.ComplexFFT;
+import org.almostrealism.audio.computations.FFTPlanCache;
+import org.almostrealism.audio.computations.RealFFT;
 import org.almostrealism.audio.computations.WindowPreprocess;
 import org.almostrealism.audio.util.TensorRow;
 import io.almostrealism.relation.Evaluable;
@@ -15,6 +17,8 @@ import org.almostrealism.algebra.computations.ScalarBankAdd;
 import org.almostrealism.algebra.computations.ScalarBankSum;
 import org.almostrealism.audio.computations.SplitRadixFFT;
 import org.almostrealism.CodeFeatures;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.collect.TraversalPolicy;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -25,6 +29,20 @@ import java.util.stream.IntStream;
 public class FeatureComputer implements CodeFeatures {
 	public static boolean enableVerbose = false;
 
+	/**
+	 * If true, {@link #compute(ScalarBank, double, BiConsumer)} computes the features for
+	 * every frame of the waveform at once using {@link #computeBatch(ScalarBank, double)}.
+	 * This is a fast path which runs on the CPU, apart from the FFT, and is intended for
+	 * when the per-frame kernels are dominated by their invocation overhead.
+	 */
+	public static boolean enableBatch = false;
+
+	/**
+	 * If true, the power spectrum is computed using a {@link RealFFT} of the padded window
+	 * size, rather than a {@link ComplexFFT} of a window with zero imaginary parts.
+	 */
+	public static boolean enableRealFFT = true;
+
 	private static final double epsilon = 0.00000001;
 
 	private final FeatureSettings settings;
@@ -33,6 +51,7 @@ public class FeatureComputer implements CodeFeatures {
 	private final WaveMath math;
 
 	private final Evaluable<? extends PairBank> fft;
+	private final RealFFT realFft;
 
 	private final Evaluable<? extends ScalarBank> processWindow;
 	private Evaluable<? extends ScalarBank> preemphasizeAndWindowFunctionAndPad;
@@ -44,6 +63,9 @@ public class FeatureComputer implements CodeFeatures {
 	private Scalar logEnergyFloor;
 	private final Map<Double, MelBanks> allMelBanks;  // BaseFloat is VTLN coefficient.
 
+	private final double windowCoeffs[];
+	private final double dctCoeffs[];  // dctMatrix, row-major, for the batched path.
+
 	private final ScalarBank melEnergies;
 
 	private final ScalarBank windowInput;
@@ -58,6 +80,7 @@ public class FeatureComputer implements CodeFeatures {
 		this.settings = settings;
 		this.featureWindowFunction = new FeatureWindowFunction(settings.getFrameExtractionSettings());
 		this.allMelBanks = new HashMap<>();
+		this.windowCoeffs = featureWindowFunction.getCoefficients();
 		this.math = new WaveMath();
 		this.logTensor = new Tensor<>();
 
@@ -85,6 +108,12 @@ public class FeatureComputer implements CodeFeatures {
 		// dctMatrix.trim(this.settings.getNumCeps(), binCount);
 		dctMatrix = dctm.copy(this.settings.getNumCeps(), binCount);
 		featureEnergies = new ScalarBank(this.settings.getNumCeps());
+
+		dctCoeffs = new double[this.settings.getNumCeps() * binCount];
+		for (int k = 0; k < this.settings.getNumCeps(); k++)
+			for (int n = 0; n < binCount; n++)
+				dctCoeffs[k * binCount + n] = dctMatrix.get(k, n).getValue();
+
 		if (this.settings.getCepstralLifter().getValue() != 0.0) {
 			lifterCoeffs = new ScalarBank(this.settings.getNumCeps());
 			computeLifterCoeffs(this.settings.getCepstralLifter().getValue(), lifterCoeffs);
@@ -94,7 +123,8 @@ public class FeatureComputer implements CodeFeatures {
 
 		PairBank fftOutput = new PairBank(paddedWindowSize);
 
-		fft = new ComplexFFT(paddedWindowSize, true, v(2 * paddedWindowSize, 0));
+		fft = FFTPlanCache.complex(paddedWindowSize, true);
+		realFft = FFTPlanCache.real(paddedWindowSize);
 
 		int count = settings.getFrameExtractionSettings().getWindowSize();
 		Supplier<Evaluable<? extends ScalarBank>> processWindow = null;
@@ -226,6 +256,11 @@ public class FeatureComputer implements CodeFeatures {
 			return;
 		}
 
+		if (enableBatch) {
+			computeBatch(wave, vtlnWarp, output);
+			return;
+		}
+
 		boolean useRawLogEnergy = settings.isNeedRawLogEnergy();
 		for (int r = 0; r < rowsOut; r++) {
 			featureCount++;
@@ -241,6 +276,256 @@ public class FeatureComputer implements CodeFeatures {
 		}
 	}
 
+	/**
+	 * Computes the features for every frame of the waveform using {@link #computeBatch(ScalarBank, double)},
+	 * providing them to the output one row at a time in the same way as the per-frame path.
+	 */
+	public void computeBatch(ScalarBank wave, double vtlnWarp, BiConsumer<Integer, ScalarBank> output) {
+		PackedCollection<?> features = computeBatch(wave, vtlnWarp);
+		if (features == null) return;
+
+		int numCeps = settings.getNumCeps();
+		double data[] = features.toArray(0, features.getMemLength());
+
+		for (int r = 0; r < data.length / numCeps; r++) {
+			for (int i = 0; i < numCeps; i++) featureEnergies.set(i, data[r * numCeps + i]);
+			output.accept(r, featureEnergies);
+		}
+	}
+
+	/**
+	 * Computes the features for every frame of the waveform at once, rather than one frame
+	 * at a time. The waveform is framed into a single (frames x padded window) collection,
+	 * and each of the stages (windowing, FFT, power spectrum, mel projection and DCT) is
+	 * performed over all of the frames before the next stage begins. Only the FFT uses a
+	 * kernel, which is evaluated for each frame; the other stages are computed on the CPU,
+	 * avoiding a kernel invocation for every frame and bin of the per-frame path.
+	 *
+	 * @return  A (frames x ceps) collection of features, or null if the waveform is too
+	 *          short for a single frame.
+	 */
+	public PackedCollection<?> computeBatch(ScalarBank wave, double vtlnWarp) {
+		FrameExtractionSettings opts = settings.getFrameExtractionSettings();
+		int rows = numFrames(wave.getCount(), opts, false);
+		if (rows == 0) return null;
+
+		int paddedWindowSize = opts.getPaddedWindowSize();
+		int numCeps = settings.getNumCeps();
+
+		long start = System.currentTimeMillis();
+		double energies[] = new double[rows];
+		PackedCollection<?> frames = extractFrames(samples(wave), rows, opts, energies);
+		if (enableVerbose) System.out.println("--> extractFrames: " + (System.currentTimeMillis() - start));
+
+		start = System.currentTimeMillis();
+		double spectrum[] = computePowerSpectrum(frames, rows, paddedWindowSize);
+		if (enableVerbose) System.out.println("--> computePowerSpectrum: " + (System.currentTimeMillis() - start));
+
+		start = System.currentTimeMillis();
+		double mel[] = computeMelEnergies(spectrum, rows, paddedWindowSize / 2 + 1, vtlnWarp);
+		if (enableVerbose) System.out.println("--> melBanks: " + (System.currentTimeMillis() - start));
+
+		start = System.currentTimeMillis();
+		double features[] = computeCepstra(mel, rows, energies);
+		if (enableVerbose) System.out.println("--> dctMatrix: " + (System.currentTimeMillis() - start));
+
+		featureCount += rows;
+
+		PackedCollection<?> result = new PackedCollection(new TraversalPolicy(rows, numCeps));
+		result.setMem(0, features);
+		return result;
+	}
+
+	/**
+	 * Copy every frame of the waveform into one collection, and apply pre-emphasis, the
+	 * window function and padding to each frame. This is equivalent to {@link #extractWindow}
+	 * for each frame, but without dither or removal of the DC offset which that method does
+	 * not currently apply either.
+	 */
+	protected PackedCollection<?> extractFrames(double wave[], int rows, FrameExtractionSettings opts, double energies[]) {
+		int frameLength = opts.getWindowSize();
+		int frameLengthPadded = opts.getPaddedWindowSize();
+		double preemphCoeff = opts.getPreemphCoeff().getValue();
+
+		boolean useRawLogEnergy = settings.isNeedRawLogEnergy();
+		boolean useWindowEnergy = settings.isUseEnergy() && !settings.isRawEnergy();
+
+		double data[] = new double[rows * frameLengthPadded];
+
+		for (int r = 0; r < rows; r++) {
+			int offset = r * frameLengthPadded;
+			int waveStart = (int) firstSampleOfFrame(r, opts);
+
+			if (waveStart >= 0 && waveStart + frameLength <= wave.length) {
+				System.arraycopy(wave, waveStart, data, offset, frameLength);
+			} else {
+				for (int s = 0; s < frameLength; s++) {
+					data[offset + s] = wave[reflect(waveStart + s, wave.length)];
+				}
+			}
+
+			// The same diagnostics as the per-frame path records in processWindow
+			int row = featureCount + r + 1;
+			double logDot = Math.log(dot(data, offset, frameLength));
+			logTensor.insert((double) row, row, 0); // Number column
+			logTensor.insert(dot(data, offset, frameLength), row, 1);
+			logTensor.insert(logDot, row, 2);
+
+			if (useRawLogEnergy) {
+				energies[r] = logDot;
+				logTensor.insert(logDot, row, 3);
+				logTensor.insert(logDot, row, 4);
+			}
+
+			for (int i = frameLength - 1; i > 0; i--) {
+				data[offset + i] -= preemphCoeff * data[offset + i - 1];
+			}
+
+			data[offset] -= preemphCoeff * data[offset];
+
+			for (int i = 0; i < frameLength; i++) {
+				data[offset + i] *= windowCoeffs[i];
+			}
+
+			if (useWindowEnergy) energies[r] = Math.log(dot(data, offset, frameLengthPadded));
+		}
+
+		PackedCollection<?> frames = new PackedCollection(new TraversalPolicy(rows, frameLengthPadded));
+		frames.setMem(0, data);
+		return frames;
+	}
+
+	/**
+	 * Compute the power spectrum of a single (padded) frame using the {@link RealFFT}.
+	 */
+	protected ScalarBank computePowerSpectrum(ScalarBank frame) {
+		double spectrum[] = new double[realFft.getBins()];
+		realFft.powerSpectrum(samples(frame), 0, spectrum, 0);
+
+		ScalarBank powerSpectrum = new ScalarBank(spectrum.length);
+		for (int i = 0; i < spectrum.length; i++) powerSpectrum.set(i, spectrum[i]);
+		return powerSpectrum;
+	}
+
+	/**
+	 * Transform every frame, returning a (frames x (padded window / 2 + 1)) power spectrum.
+	 * The FFT kernel is compiled for a single transform, so it is evaluated once for each frame.
+	 */
+	protected double[] computePowerSpectrum(PackedCollection<?> frames, int rows, int paddedWindowSize) {
+		int spectrumSize = paddedWindowSize / 2 + 1;
+
+		double data[] = frames.toArray(0, rows * paddedWindowSize);
+		double spectrum[] = new double[rows * spectrumSize];
+
+		if (enableRealFFT) {
+			for (int r = 0; r < rows; r++) {
+				realFft.powerSpectrum(data, r * paddedWindowSize, spectrum, r * spectrumSize);
+			}
+
+			return spectrum;
+		}
+
+		double input[] = new double[2 * paddedWindowSize];
+
+		for (int r = 0; r < rows; r++) {
+			for (int i = 0; i < paddedWindowSize; i++) {
+				input[2 * i] = data[r * paddedWindowSize + i];
+			}
+
+			complexSignalFrame.setMem(0, input);
+			double out[] = fft.evaluate(complexSignalFrame).toArray(0, 2 * spectrumSize);
+
+			for (int k = 0; k < spectrumSize; k++) {
+				spectrum[r * spectrumSize + k] = out[2 * k] * out[2 * k] + out[2 * k + 1] * out[2 * k + 1];
+			}
+		}
+
+		return spectrum;
+	}
+
+	/**
+	 * Project the power spectrum of every frame onto the mel bins, returning the
+	 * (floored) log of the (frames x bins) mel energies.
+	 */
+	protected double[] computeMelEnergies(double spectrum[], int rows, int spectrumSize, double vtlnWarp) {
+		double mel[] = new double[rows * settings.getMelBanksSettings().getNumBins()];
+		getMelBanks(vtlnWarp).compute(spectrum, rows, spectrumSize, mel);
+
+		for (int i = 0; i < mel.length; i++) {
+			mel[i] = Math.log(Math.max(mel[i], epsilon));
+		}
+
+		return mel;
+	}
+
+	/**
+	 * Apply the DCT to the mel energies of every frame, followed by liftering and
+	 * the replacement of C0 with the energy of the frame (if configured).
+	 */
+	protected double[] computeCepstra(double mel[], int rows, double energies[]) {
+		int binCount = settings.getMelBanksSettings().getNumBins();
+		int numCeps = settings.getNumCeps();
+		double features[] = new double[rows * numCeps];
+
+		for (int r = 0; r < rows; r++) {
+			int offset = r * numCeps;
+
+			for (int k = 0; k < numCeps; k++) {
+				double v = 0.0;
+
+				for (int n = 0; n < binCount; n++) {
+					v += dctCoeffs[k * binCount + n] * mel[r * binCount + n];
+				}
+
+				if (lifterCoeffs != null) v *= lifterCoeffs.get(k).getValue();
+				features[offset + k] = v;
+			}
+
+			if (settings.isUseEnergy()) {
+				double energy = energies[r];
+
+				if (settings.getEnergyFloor().getValue() > 0.0 && energy < logEnergyFloor.getValue()) {
+					energy = logEnergyFloor.getValue();
+				}
+
+				features[offset] = energy;
+			}
+
+			if (settings.isHtkCompat()) {
+				double energy = features[offset];
+				System.arraycopy(features, offset + 1, features, offset, numCeps - 1);
+				if (!settings.isUseEnergy()) energy *= SplitRadixFFT.SQRT_2;
+				features[offset + numCeps - 1] = energy;
+			}
+		}
+
+		return features;
+	}
+
+	private static double[] samples(ScalarBank wave) {
+		double data[] = wave.toArray(0, 2 * wave.getCount());
+		return IntStream.range(0, wave.getCount()).mapToDouble(i -> data[2 * i]).toArray();
+	}
+
+	private static double dot(double data[], int offset, int length) {
+		double sum = 0.0;
+		for (int i = offset; i < offset + length; i++) sum += data[i] * data[i];
+		return Math.max(sum, epsilon);
+	}
+
+	/**
+	 * Reflect a sample index around the beginning or end of the wave, e.g. -1 -> 0, -2 -> 1,
+	 * dim -> dim - 1, dim + 1 -> dim - 2.
+	 */
+	private static int reflect(int s, int dim) {
+		while (s < 0 || s >= dim) {
+			if (s < 0) s = -s - 1;
+			else s = 2 * dim - 1 - s;
+		}
+
+		return s;
+	}
+
 	private double dot(ScalarBank x, ScalarBank y) {
 		return Math.max(
 				IntStream.range(0, x.getCount()).mapToDouble(i ->
@@ -270,20 +555,20 @@ public class FeatureComputer implements CodeFeatures {
 
 		long start = System.currentTimeMillis();
 
-		PairBank signalFrame;
+		ScalarBank powerSpectrum;
 
-		if (fft != null) {
-			signalFrame = fft.evaluate(toPairBank(realSignalFrame, complexSignalFrame));
+		if (enableRealFFT) {
+			powerSpectrum = computePowerSpectrum(realSignalFrame);
+			if (enableVerbose) System.out.println("--> computePowerSpectrum: " + (System.currentTimeMillis() - start));
 		} else {
-			throw new UnsupportedOperationException();
-		}
-
-		if (enableVerbose) System.out.println("--> FFT: " + (System.currentTimeMillis() - start));
+			PairBank signalFrame = fft.evaluate(toPairBank(realSignalFrame, complexSignalFrame));
+			if (enableVerbose) System.out.println("--> FFT: " + (System.currentTimeMillis() - start));
 
-		// Convert the FFT into a power spectrum.
-		start = System.currentTimeMillis();
-		ScalarBank powerSpectrum = this.powerSpectrum.evaluate(signalFrame).range(0, signalFrame.getCount() / 2 + 1);
-		if (enableVerbose) System.out.println("--> computePowerSpectrum: " + (System.currentTimeMillis() - start));
+			// Convert the FFT into a power spectrum.
+			start = System.currentTimeMillis();
+			powerSpectrum = this.powerSpectrum.evaluate(signalFrame).range(0, signalFrame.getCount() / 2 + 1);
+			if (enableVerbose) System.out.println("--> computePowerSpectrum: " + (System.currentTimeMillis() - start));
+		}
 
 		start = System.currentTimeMillis();
 		melBanks.compute(powerSpectrum, melEnergies);
@@ -5,66 +5,209 @@ import org.almostrealism.algebra.Scalar;
 import org.almostrealism.algebra.ScalarBank;
 import org.almostrealism.algebra.Tensor;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+/**
+ * A {@link FeatureExtractor} computes features for many utterances concurrently. Each
+ * worker of the pool has its own {@link FeatureComputer}, and files are decoded on the
+ * calling thread no faster than the workers (and the consumer) can keep up with: at most
+ * {@link #getMaxPending()} utterances are decoded but not yet delivered at any time.
+ * <br>
+ * Results are delivered to the consumer one at a time, tagged with the key of the
+ * utterance, either in the order the files were provided or as soon as they are available.
+ *
+ * @author  Michael Murray
+ */
 public class FeatureExtractor {
 	private static final ThreadLocal<FeatureComputer> computers = new ThreadLocal<>();
 
-	public static void main(String args[]) throws InterruptedException, ExecutionException {
-		ExecutorService executor = Executors.newFixedThreadPool(1);
+	private final FeatureSettings settings;
+	private final int threads;
+	private final int maxPending;
+	private double vtlnWarp;
+	private double minDuration;
+
+	private final ExecutorService executor;
+	private final ThreadLocal<FeatureComputer> workerComputers;
+
+	public FeatureExtractor(FeatureSettings settings, int threads) {
+		this(settings, threads, 2 * threads);
+	}
+
+	public FeatureExtractor(FeatureSettings settings, int threads, int maxPending) {
+		if (threads < 1 || maxPending < 1) {
+			throw new IllegalArgumentException("At least one thread and one pending utterance is required");
+		}
+
+		this.settings = settings;
+		this.threads = threads;
+		this.maxPending = maxPending;
+		this.vtlnWarp = 1.0;
+		this.workerComputers = ThreadLocal.withInitial(() -> new FeatureComputer(this.settings));
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "FeatureExtractor");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public FeatureSettings getSettings() { return settings; }
+
+	public int getThreads() { return threads; }
+
+	/**
+	 * The maximum number of utterances which have been decoded, but not yet delivered to the consumer.
+	 */
+	public int getMaxPending() { return maxPending; }
+
+	public double getVtlnWarp() { return vtlnWarp; }
+	public void setVtlnWarp(double vtlnWarp) { this.vtlnWarp = vtlnWarp; }
+
+	/**
+	 * Utterances shorter than this duration, in seconds, are skipped.
+	 */
+	public double getMinDuration() { return minDuration; }
+	public void setMinDuration(double minDuration) { this.minDuration = minDuration; }
+
+	/**
+	 * Compute features for every WAV file in the directory, in order of file name,
+	 * using the name of the file without its extension as the key.
+	 */
+	public Statistics process(File directory, boolean ordered, BiConsumer<String, Tensor<Scalar>> output) throws IOException {
+		File files[] = directory.listFiles(f -> f.isFile() && f.getName().toLowerCase().endsWith(".wav"));
+		if (files == null) throw new IOException(directory + " is not a directory");
+
+		return process(Stream.of(files).sorted(Comparator.comparing(File::getName)), ordered, output);
+	}
+
+	/**
+	 * Compute features for every file in the stream, using the name of the file without its
+	 * extension as the key. If ordered is true, results are delivered in the order of the
+	 * stream, otherwise they are delivered as soon as they are available. Either way, the
+	 * consumer is never called by more than one thread at a time. Utterances which cannot
+	 * be decoded, for which features cannot be computed, or for which the consumer throws
+	 * an exception, are counted as failures.
+	 */
+	public Statistics process(Stream<File> files, boolean ordered, BiConsumer<String, Tensor<Scalar>> output) {
+		Statistics stats = new Statistics();
+		Delivery delivery = new Delivery(ordered, maxPending, output, stats);
+		List<Future<?>> futures = new ArrayList<>();
+
+		long start = System.nanoTime();
+		int index = 0;
+
+		for (File file : (Iterable<File>) files::iterator) {
+			int i = index++;
+			String key = key(file);
 
-		List<Future<?>> futures = IntStream.range(0, 10).mapToObj(i -> (Runnable) () -> {
 			try {
-				main(
-						Collections.singletonList(WavFile.openWavFile(
-								new File("/Users/michael/CLionProjects/kaldi/test-16khz.wav"))),
-						FeatureExtractor::print);
-			} catch (Exception e) {
-				e.printStackTrace();
+				delivery.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
 			}
-		}).map(executor::submit).collect(Collectors.toList());
 
-		f: while (true) {
-			for (Future<?> future : futures) {
-				if (!future.isDone()) {
-					Thread.sleep(5000);
-					continue f;
+			long decodeStart = System.nanoTime();
+			ScalarBank wave;
+			long sampleRate;
+
+			try {
+				WavFile f = WavFile.openWavFile(file);
+
+				try {
+					if (f.getDuration() < minDuration) {
+						stats.skipped.incrementAndGet();
+						delivery.complete(i, key, null);
+						continue;
+					}
+
+					wave = f.readChannelScalar(0);
+					sampleRate = f.getSampleRate();
+				} finally {
+					f.close();
 				}
+			} catch (IOException e) {
+				System.out.println("FeatureExtractor: Unable to decode " + file + " (" + e.getMessage() + ")");
+				stats.failures.incrementAndGet();
+				delivery.complete(i, key, null);
+				continue;
+			} finally {
+				stats.decodeNanos.addAndGet(System.nanoTime() - decodeStart);
 			}
 
-			break f;
-		}
+			futures.add(executor.submit(() -> {
+				Tensor<Scalar> features = null;
 
-		executor.submit(() -> {
-			File file = new File("/Users/michael/Desktop/feature-log.csv");
+				try {
+					long computeStart = System.nanoTime();
+					features = new Tensor<>();
+					workerComputers.get().computeFeatures(wave, new Scalar(sampleRate), vtlnWarp, features);
+					stats.computeNanos.addAndGet(System.nanoTime() - computeStart);
+				} catch (Exception e) {
+					System.out.println("FeatureExtractor: Failed to compute features for " + key + " (" + e.getMessage() + ")");
+					stats.failures.incrementAndGet();
+					features = null;
+				} finally {
+					delivery.complete(i, key, features);
+				}
+			}));
+		}
 
-			try (FileOutputStream fs = new FileOutputStream(file);
-				 BufferedWriter out = new BufferedWriter(new OutputStreamWriter(fs))) {
-				out.write(computers.get().getLogTensor().toCSV());
-			} catch (IOException e) {
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
 				e.printStackTrace();
 			}
-		}).get();
+		}
 
-		System.exit(0);
+		stats.elapsedNanos.set(System.nanoTime() - start);
+		return stats;
+	}
+
+	/**
+	 * Stop the workers of this {@link FeatureExtractor}, after which it can no longer be used.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	protected static String key(File file) {
+		String name = file.getName();
+		int ext = name.lastIndexOf('.');
+		return ext > 0 ? name.substring(0, ext) : name;
+	}
+
+	public static void main(String args[]) throws IOException {
+		File directory = new File(args.length > 0 ? args[0] : "/Users/michael/CLionProjects/kaldi/utterances");
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		FeatureExtractor extractor = new FeatureExtractor(new FeatureSettings(), threads);
+		Statistics stats = extractor.process(directory, true, (key, features) -> print(features));
+		extractor.shutdown();
+
+		System.out.println(stats.describe());
+		System.exit(stats.getUtteranceCount() != 0 ? 0 : 1);
 	}
 
 	public static int main(List<WavFile> files, Consumer<Tensor<Scalar>> output) throws IOException {
@@ -125,4 +268,116 @@ public class FeatureExtractor {
 	public static void print(Tensor t) {
 		System.out.println(Arrays.toString(IntStream.range(0, t.length()).mapToDouble(i -> ((Scalar) t.get(i, 0)).getValue()).toArray()));
 	}
+
+	/**
+	 * Delivers results to the consumer, in order if required, and limits the number of
+	 * utterances which have been decoded but not yet delivered.
+	 */
+	private static class Delivery {
+		private final boolean ordered;
+		private final BiConsumer<String, Tensor<Scalar>> output;
+		private final Statistics stats;
+		private final Semaphore pending;
+
+		private final Map<Integer, Result> waiting;
+		private int next;
+
+		Delivery(boolean ordered, int maxPending, BiConsumer<String, Tensor<Scalar>> output, Statistics stats) {
+			this.ordered = ordered;
+			this.output = output;
+			this.stats = stats;
+			this.pending = new Semaphore(maxPending);
+			this.waiting = new TreeMap<>();
+		}
+
+		void acquire() throws InterruptedException { pending.acquire(); }
+
+		/**
+		 * Record the result for an utterance, which is null if no features were produced.
+		 */
+		synchronized void complete(int index, String key, Tensor<Scalar> features) {
+			if (!ordered) {
+				deliver(new Result(key, features));
+				return;
+			}
+
+			waiting.put(index, new Result(key, features));
+
+			while (waiting.containsKey(next)) {
+				deliver(waiting.remove(next++));
+			}
+		}
+
+		/**
+		 * Provide the result to the consumer, counting it as a failure if the consumer throws
+		 * an exception, so that the results which follow it are still delivered and the permit
+		 * for every result is always released.
+		 */
+		private void deliver(Result result) {
+			try {
+				if (result.features == null) return;
+
+				long start = System.nanoTime();
+				output.accept(result.key, result.features);
+				stats.outputNanos.addAndGet(System.nanoTime() - start);
+				stats.utterances.incrementAndGet();
+			} catch (RuntimeException e) {
+				System.out.println("FeatureExtractor: Failed to deliver features for " + result.key + " (" + e.getMessage() + ")");
+				stats.failures.incrementAndGet();
+			} finally {
+				pending.release();
+			}
+		}
+	}
+
+	private static class Result {
+		private final String key;
+		private final Tensor<Scalar> features;
+
+		Result(String key, Tensor<Scalar> features) {
+			this.key = key;
+			this.features = features;
+		}
+	}
+
+	/**
+	 * The number of utterances processed by {@link FeatureExtractor#process(Stream, boolean, BiConsumer)}
+	 * and the time spent decoding, computing features and delivering them to the consumer. Decoding
+	 * happens on one thread, while computation happens on every worker, so the time spent in each
+	 * stage can exceed the elapsed time.
+	 */
+	public static class Statistics {
+		private final AtomicLong utterances = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private final AtomicLong skipped = new AtomicLong();
+		private final AtomicLong decodeNanos = new AtomicLong();
+		private final AtomicLong computeNanos = new AtomicLong();
+		private final AtomicLong outputNanos = new AtomicLong();
+		private final AtomicLong elapsedNanos = new AtomicLong();
+
+		public long getUtteranceCount() { return utterances.get(); }
+
+		public long getFailureCount() { return failures.get(); }
+
+		public long getSkippedCount() { return skipped.get(); }
+
+		public double getDecodeSeconds() { return decodeNanos.get() / 1e9; }
+
+		public double getComputeSeconds() { return computeNanos.get() / 1e9; }
+
+		public double getOutputSeconds() { return outputNanos.get() / 1e9; }
+
+		public double getElapsedSeconds() { return elapsedNanos.get() / 1e9; }
+
+		public double getUtterancesPerSecond() {
+			return getElapsedSeconds() > 0 ? getUtteranceCount() / getElapsedSeconds() : 0.0;
+		}
+
+		public String describe() {
+			return String.format("FeatureExtractor: %d utterances (%d failed, %d skipped) in %.2f sec (%.2f/sec) - " +
+							"decode %.2f sec, compute %.2f sec, output %.2f sec",
+					getUtteranceCount(), getFailureCount(), getSkippedCount(), getElapsedSeconds(),
+					getUtterancesPerSecond(), getDecodeSeconds(), getComputeSeconds(), getOutputSeconds());
+		}
+	}
 }
@@ -9,6 +9,7 @@ import org.almostrealism.CodeFeatures;
 
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 
 public class FeatureWindowFunction implements CodeFeatures {
 	private final ScalarBank win;
@@ -50,6 +51,13 @@ public class FeatureWindowFunction implements CodeFeatures {
 		this.window = new ScalarBankProduct(win.getCount(), scalars(win), v(win.getCount() * 2, 0)).get();
 	}
 
+	/**
+	 * Returns the value of the window function for each sample of the frame.
+	 */
+	public double[] getCoefficients() {
+		return IntStream.range(0, win.getCount()).mapToDouble(i -> win.get(i).getValue()).toArray();
+	}
+
 	public UnaryOperator<ScalarBank> getWindow() {
 		return window::evaluate;
 	}
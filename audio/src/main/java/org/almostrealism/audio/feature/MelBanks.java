@@ -9,8 +9,6 @@ import java.util.List;
 
 public class MelBanks implements CodeFeatures {
 
-	private final WaveMath math;
-
 	/**
 	 * Center frequencies of bins, numbered from 0 ... num_bins-1.
 	 */
@@ -21,12 +19,19 @@ public class MelBanks implements CodeFeatures {
 	 */
 	private final List<Bin> bins;
 
+	/**
+	 * The weights of every bin packed as a sparse matrix, with one row per bin: the first
+	 * nonzero fft-bin of each row, the number of weights in each row, the position of the first
+	 * weight of each row in the packed weights, and the weights of every row one after another.
+	 */
+	private int rowOffsets[], rowLengths[], rowStarts[];
+	private double weights[];
+
 	private final boolean debug;
 	private final boolean htkMode;
 
 	public MelBanks(MelBanksSettings opts, FrameExtractionSettings frameExtractionSettings,
 					   Scalar vtlnWarpFactor) {
-		this.math = new WaveMath();
 		this.centerFreqs = new ArrayList<>();
 		this.bins = new ArrayList<>();
 		this.htkMode = opts.isHtkMode();
@@ -145,6 +150,8 @@ public class MelBanks implements CodeFeatures {
 
 		}
 
+		pack();
+
 		if (debug) {
 			for (int i = 0; i < bins.size(); i++) {
 				System.out.println("bin " + i + ", offset = " + bins.get(i).getKey()
@@ -167,23 +174,15 @@ public class MelBanks implements CodeFeatures {
 		int numBins = bins.size();
 		assert melEnergiesOut.getCount() == numBins;
 
+		double values[] = powerSpectrum.toArray(0, 2 * powerSpectrum.getCount());
+		double spectrum[] = new double[powerSpectrum.getCount()];
+		for (int i = 0; i < spectrum.length; i++) spectrum[i] = values[2 * i];
+
+		double energies[] = new double[numBins];
+		compute(spectrum, 1, spectrum.length, energies);
+
 		for (int i = 0; i < numBins; i++) {
-			int offset = bins.get(i).getKey();
-   			ScalarBank v = bins.get(i).getValue();
-			// System.out.println("Bin(" + i + "):");
-			// IntStream.range(0, v.getCount()).mapToObj(v::get).forEach(System.out::println);
-
-   			ScalarBank spec = powerSpectrum.range(offset, v.getCount());
-   			// System.out.println("Spectrum:");
-   			// IntStream.range(0, spec.getCount()).mapToObj(spec::get).forEach(System.out::println);
-
-   			Scalar r = math.dot(v, spec);
-   			// System.out.println(r);
-			// double energy = vecDot(v, powerSpectrum.range(offset, v.getCount())).getValue();
-			double energy = r.getValue();
-			// HTK-like flooring- for testing purposes (we prefer dither)
-			if (htkMode && energy < 1.0) energy = 1.0;
-			melEnergiesOut.set(i, energy);
+			melEnergiesOut.set(i, energies[i]);
 		}
 
 		if (debug) {
@@ -194,6 +193,62 @@ public class MelBanks implements CodeFeatures {
 		}
 	}
 
+	/**
+	 * Compute the energy of every bin for a batch of frames in one pass over the packed weights.
+	 *
+	 * @param powerSpectrum  fft energies for each frame, row-major, with spectrumSize values per frame.
+	 * @param melEnergiesOut  (frames x bins) output, row-major.
+	 */
+	public void compute(double powerSpectrum[], int frames, int spectrumSize, double melEnergiesOut[]) {
+		int numBins = bins.size();
+		assert melEnergiesOut.length >= frames * numBins;
+
+		for (int f = 0; f < frames; f++) {
+			int spec = f * spectrumSize;
+			int out = f * numBins;
+
+			for (int i = 0; i < numBins; i++) {
+				int s = spec + rowOffsets[i];
+				int w = rowStarts[i];
+				double energy = 0.0;
+
+				for (int j = 0; j < rowLengths[i]; j++) {
+					energy += weights[w + j] * powerSpectrum[s + j];
+				}
+
+				// HTK-like flooring- for testing purposes (we prefer dither)
+				if (htkMode && energy < 1.0) energy = 1.0;
+				melEnergiesOut[out + i] = energy;
+			}
+		}
+	}
+
+	private void pack() {
+		int numBins = bins.size();
+		rowOffsets = new int[numBins];
+		rowLengths = new int[numBins];
+		rowStarts = new int[numBins];
+
+		int total = 0;
+
+		for (int i = 0; i < numBins; i++) {
+			rowOffsets[i] = bins.get(i).getKey();
+			rowLengths[i] = bins.get(i).getValue().getCount();
+			rowStarts[i] = total;
+			total += rowLengths[i];
+		}
+
+		weights = new double[total];
+
+		for (int i = 0; i < numBins; i++) {
+			ScalarBank v = bins.get(i).getValue();
+
+			for (int j = 0; j < rowLengths[i]; j++) {
+				weights[rowStarts[i] + j] = v.get(j).getValue();
+			}
+		}
+	}
+
 	// Durbin's recursion - converts autocorrelation coefficients to the LPC
 	// pTmp - temporal place [n]
 	// pAC - autocorrelation coefficients [n + 1]
@@ -2,13 +2,20 @@ package org.almostrealism.audio.feature;
 
 import org.almostrealism.algebra.Scalar;
 import org.almostrealism.algebra.ScalarBank;
-import org.almostrealism.hardware.HardwareException;
-
-import java.util.ArrayList;
-import java.util.List;
-
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.collect.PackedCollection;
+
+/**
+ * A {@link Resampler} converts audio from one sample rate to another using a windowed sinc
+ * filter. The filter is polyphase: the output is made up of repeating units, within which
+ * each output sample (phase) has its own table of coefficients, and these are computed once
+ * when the {@link Resampler} is created. Input can be provided one chunk at a time, and
+ * only enough of the previous input to cover the width of the filter is retained between
+ * chunks.
+ */
 public class Resampler {
-	private final WaveMath math;
+	public static final int CHUNK_SIZE = 64 * 1024;
+
 	private final int sampRateIn;
 	private final int sampRateOut;
 	private final Scalar filterCutoff;
@@ -17,13 +24,23 @@ public class Resampler {
 	private final int outputSamplesInUnit;
 	private long inputSampleOffset;
 	private long outputSampleOffset;
-	private List<Scalar> inputRemainder;
-	private ScalarBank firstIndex;
-	private List<ScalarBank> weights;
+
+	/**
+	 * For each phase, the first input index (relative to the start of the unit)
+	 * that it has a coefficient for, and the coefficients.
+	 */
+	private int firstIndex[];
+	private double weights[][];
+
+	/**
+	 * The end of the input that has been provided so far, which is needed for
+	 * output samples in the next chunk. The last value is the last input sample.
+	 */
+	private final double inputRemainder[];
+	private int inputRemainderSize;
 
 	public Resampler(int sampRateInHz, int sampRateOutHz,
 					 Scalar filterCutoffHz, int numZeros) {
-		this.math = new WaveMath();
 		this.sampRateIn = sampRateInHz;
 		this.sampRateOut = sampRateOutHz;
 		this.filterCutoff = filterCutoffHz;
@@ -41,6 +58,13 @@ public class Resampler {
 		inputSamplesInUnit = sampRateIn / baseFreq;
 		outputSamplesInUnit = sampRateOut / baseFreq;
 
+		// maxRemainderNeeded is the width of the filter from side to side,
+		// measured in input samples.  you might think it should be half that,
+		// but you have to consider that you might be wanting to output samples
+		// that are "in the past" relative to the beginning of the latest
+		// input... anyway, storing more remainder than needed is not harmful.
+		inputRemainder = new double[(int) Math.ceil(sampRateIn * numZeros / filterCutoff.getValue())];
+
 		setIndexesAndWeights();
 		reset();
 	}
@@ -48,7 +72,7 @@ public class Resampler {
 	void reset() {
 		inputSampleOffset = 0;
 		outputSampleOffset = 0;
-		inputRemainder = new ArrayList<>();
+		inputRemainderSize = 0;
 	}
 
 	long getNumOutputSamples(long inputNumSamp,
@@ -98,8 +122,8 @@ public class Resampler {
 	}
 
 	void setIndexesAndWeights() {
-		firstIndex = new ScalarBank(outputSamplesInUnit);
-		weights = new ArrayList<>();
+		firstIndex = new int[outputSamplesInUnit];
+		weights = new double[outputSamplesInUnit][];
 
 		double windowWidth = numZeros / (2.0 * filterCutoff.getValue());
 
@@ -115,118 +139,112 @@ public class Resampler {
 			// but this is only a slight efficiency issue.
 			int minInputIndex = (int) Math.ceil(minT * sampRateIn),
 					maxInputIndex = (int) Math.floor(maxT * sampRateIn);
-			firstIndex.set(i, minInputIndex);
-			weights.add(null);
+			firstIndex[i] = minInputIndex;
 			int numIndices = maxInputIndex - minInputIndex + 1;
-			weights.set(i, new ScalarBank(numIndices));
+			weights[i] = new double[numIndices];
 			for (int j = 0; j < numIndices; j++) {
 				int inputIndex = minInputIndex + j;
 				double inputT = inputIndex / (double) sampRateIn,
 						deltaT = inputT - outputT;
 				// sign of deltaT doesn't matter.
-				weights.get(i).set(j, new Scalar(filterFunc(new Scalar(deltaT)).getValue() / sampRateIn));
+				weights[i][j] = filterFunc(deltaT) / sampRateIn;
 			}
 		}
 	}
 
-	// TODO  inline?
-	double[] getIndexes(long sampOut) {
-		// A unit is the smallest nonzero amount of time that is an exact
-		// multiple of the input and output sample periods.  The unit index
-		// is the answer to "which numbered unit we are in".
-		long unitIndex = sampOut / outputSamplesInUnit;
-		// sampOutWrapped is equal to sampOut % outputSamplesInUnit
-
-		double v[] = new double[2];
-		v[1] = sampOut - unitIndex * outputSamplesInUnit;
-		v[0] = (int) firstIndex.get((int) v[1]).getValue() + unitIndex * inputSamplesInUnit;
-		return v;
-	}
+	ScalarBank resample(ScalarBank input, boolean flush) {
+		double values[] = input.toArray(0, 2 * input.getCount());
+		double samples[] = new double[input.getCount()];
+		for (int i = 0; i < samples.length; i++) samples[i] = values[2 * i];
 
+		double result[] = resample(samples, 0, samples.length, flush);
 
-	ScalarBank resample(ScalarBank input, boolean flush) {
-		int inputDim = input.getCount();
+		ScalarBank output = new ScalarBank(result.length);
+		for (int i = 0; i < result.length; i++) output.set(i, result[i]);
+		return output;
+	}
+
+	/**
+	 * Resample the next chunk of input, returning every output sample that can be computed
+	 * from the input provided so far (or every remaining output sample, if flush is true, after
+	 * which this {@link Resampler} can be used for a new signal).
+	 */
+	public double[] resample(double input[], int offset, int inputDim, boolean flush) {
 		long totInputSamp = inputSampleOffset + inputDim,
 				totOutputSamp = getNumOutputSamples(totInputSamp, flush);
 
-		if (totOutputSamp >= Integer.MAX_VALUE) {
+		if (totOutputSamp - outputSampleOffset >= Integer.MAX_VALUE) {
 			throw new UnsupportedOperationException("Cannot resample");
 		}
 
-		ScalarBank output = new ScalarBank((int) totOutputSamp);
-
 		assert totOutputSamp >= outputSampleOffset;
 
+		double output[] = new double[(int) (totOutputSamp - outputSampleOffset)];
+
 		// sampOut is the index into the total output signal, not just the part
 		// of it we are producing here.
 		for (long sampOut = outputSampleOffset;
 			 sampOut < totOutputSamp;
 			 sampOut++) {
-			double indexes[] = getIndexes(sampOut);
-			ScalarBank weights = this.weights.get((int) indexes[1]);
-			// firstInputIndex is the first index into "input" that we have a weight
-			// for.
-			int firstInputIndex = (int) (indexes[0] - inputSampleOffset);
-			Scalar thisOutput;
-
-			if (firstInputIndex >= 0 &&
-					firstInputIndex + weights.getCount() <= inputDim) {
-				ScalarBank inputPart = listSegment(input, firstInputIndex, weights.getCount());
-				thisOutput = math.dot(inputPart, weights);
+			// A unit is the smallest nonzero amount of time that is an exact
+			// multiple of the input and output sample periods.  The unit index
+			// is the answer to "which numbered unit we are in".
+			long unitIndex = sampOut / outputSamplesInUnit;
+			int phase = (int) (sampOut - unitIndex * outputSamplesInUnit);
+			double w[] = weights[phase];
+
+			// firstInputIndex is the first index into "input" that we have a weight for.
+			int firstInputIndex = (int) (firstIndex[phase] + unitIndex * inputSamplesInUnit - inputSampleOffset);
+			double thisOutput = 0.0;
+
+			if (firstInputIndex >= 0 && firstInputIndex + w.length <= inputDim) {
+				int start = offset + firstInputIndex;
+				for (int i = 0; i < w.length; i++) {
+					thisOutput += w[i] * input[start + i];
+				}
 			} else {  // Handle edge cases.
-				thisOutput = new Scalar(0.0);
-				for (int i = 0; i < weights.getCount(); i++) {
-					Scalar weight = weights.get(i);
+				for (int i = 0; i < w.length; i++) {
 					int inputIndex = firstInputIndex + i;
-					if (inputIndex < 0 && inputRemainder.size() + inputIndex >= 0) {
-						thisOutput = new Scalar(thisOutput.getValue() + weight.getValue() *
-								inputRemainder.get(inputRemainder.size() + inputIndex).getValue());
+					if (inputIndex < 0 && inputRemainderSize + inputIndex >= 0) {
+						thisOutput += w[i] * inputRemainder[inputRemainder.length + inputIndex];
 					} else if (inputIndex >= 0 && inputIndex < inputDim) {
-						thisOutput = new Scalar(thisOutput.getValue() + weight.getValue() * input.get(inputIndex).getValue());
+						thisOutput += w[i] * input[offset + inputIndex];
 					} else assert inputIndex < inputDim || flush;
 					// We're past the end of the input and are adding zero; should only
 					// happen if the user specified flush == true, or else we would not
 					// be trying to output this sample.
 				}
 			}
-			int outputIndex = (int) (sampOut - outputSampleOffset);
 
-			output.set(outputIndex, thisOutput);
+			output[(int) (sampOut - outputSampleOffset)] = thisOutput;
 		}
 
 		if (flush) {
 			reset();  // Reset the internal state.
 		} else {
-			setRemainder(input);
+			setRemainder(input, offset, inputDim);
 			inputSampleOffset = totInputSamp;
 			outputSampleOffset = totOutputSamp;
 		}
-		
+
 		return output;
 	}
 
-	// TODO  This doesn't look right. What data is impacted by this method?
-	void setRemainder(ScalarBank input) {
-		List<Scalar> oldRemainder = new ArrayList<>(inputRemainder);
-		// maxRemainderNeeded is the width of the filter from side to side,
-		// measured in input samples.  you might think it should be half that,
-		// but you have to consider that you might be wanting to output samples
-		// that are "in the past" relative to the beginning of the latest
-		// input... anyway, storing more remainder than needed is not harmful.
-		int maxRemainderNeeded = (int) Math.ceil(sampRateIn * numZeros /
-				filterCutoff.getValue());
-
-		for (int index = -inputRemainder.size(); index < 0; index++) {
-			// we interpret "index" as an offset from the end of "input" and
-			// from the end of inputRemainder.
-			int inputIndex = index + input.getCount();
-			if (inputIndex >= 0)
-				inputRemainder.set(index + inputRemainder.size(), input.get(inputIndex));
-			else if (inputIndex + oldRemainder.size() >= 0)
-				inputRemainder.set(index + inputRemainder.size(),
-						oldRemainder.get(inputIndex + oldRemainder.size()));
-			// else leave it at zero.
+	/**
+	 * Retain the end of the input, following whatever part of the previous
+	 * remainder is still needed if the input is shorter than the remainder.
+	 */
+	void setRemainder(double input[], int offset, int inputDim) {
+		int size = inputRemainder.length;
+
+		if (inputDim >= size) {
+			System.arraycopy(input, offset + inputDim - size, inputRemainder, 0, size);
+		} else {
+			System.arraycopy(inputRemainder, inputDim, inputRemainder, 0, size - inputDim);
+			System.arraycopy(input, offset, inputRemainder, size - inputDim, inputDim);
 		}
+
+		inputRemainderSize = (int) Math.min(size, inputRemainderSize + (long) inputDim);
 	}
 
 	/**
@@ -235,37 +253,24 @@ public class Resampler {
 	 * returns the windowed filter function, described
 	 * in the header as h(t) = f(t)g(t), evaluated at t.
 	 */
-	private Scalar filterFunc(Scalar t) {
-		Scalar window;  // raised-cosine (Hanning) window of width
+	private double filterFunc(double t) {
+		double cutoff = filterCutoff.getValue();
+
+		double window;  // raised-cosine (Hanning) window of width
 						// numZeros / 2 * filterCutoff
-		if (Math.abs(t.getValue()) < numZeros / (2.0 * filterCutoff.getValue()))
-			window = new Scalar(0.5 * (1 + Math.cos(2 * Math.PI * filterCutoff.getValue() / numZeros * t.getValue())));
+		if (Math.abs(t) < numZeros / (2.0 * cutoff))
+			window = 0.5 * (1 + Math.cos(2 * Math.PI * cutoff / numZeros * t));
 		else
-			window = new Scalar(0.0);  // outside support of window function
+			window = 0.0;  // outside support of window function
 
-		Scalar filter;// sinc filter function
-		if (t.getValue() != 0)
-			filter = new Scalar(Math.sin(2 * Math.PI * filterCutoff.getValue() * t.getValue()) / (Math.PI * t.getValue()));
+		double filter;  // sinc filter function
+		if (t != 0)
+			filter = Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
 		else
-			filter = new Scalar(2 * filterCutoff.getValue());  // limit of the function at t = 0
-		return new Scalar(filter.getValue() * window.getValue());
+			filter = 2 * cutoff;  // limit of the function at t = 0
+		return filter * window;
 	}
 
-	private void setWeights(List<Scalar> samplePoints) {
-		int numSamplesOut = numSamplesOut();
-		for (int i = 0; i < numSamplesOut; i++) {
-			for (int j = 0; j < weights.get(i).getCount(); j++) {
-				Scalar deltaT = new Scalar(samplePoints.get(i).getValue() -
-						((int) firstIndex.get(i).getValue() + j) / sampRateIn);
-				// Include at this point the factor of 1.0 / sampRateIn which
-				// appears in the math.
-				weights.get(i).set(j, new Scalar(filterFunc(deltaT).getValue() / sampRateIn));
-			}
-		}
-	}
-
-	private int numSamplesOut() { return weights.size(); }
-
 	public static ScalarBank resampleWaveform(Scalar origFreq, ScalarBank wave, Scalar newFreq) {
 		Scalar minFreq = new Scalar(Math.min(origFreq.getValue(), newFreq.getValue()));
 		Scalar lowpassCutoff = new Scalar(0.99 * 0.5 * minFreq.getValue());
@@ -275,11 +280,63 @@ public class Resampler {
 		return resampler.resample(wave, true);
 	}
 
-	private ScalarBank listSegment(ScalarBank input, int index, int len) {
-		ScalarBank output = new ScalarBank(len);
-		for (int i = 0; i < len; i++) {
-			output.set(i, input.get(i + index));
+	/**
+	 * Create a {@link Resampler} with the same filter that {@link #resampleWaveform} uses.
+	 */
+	public static Resampler create(int sampRateIn, int sampRateOut) {
+		double lowpassCutoff = 0.99 * 0.5 * Math.min(sampRateIn, sampRateOut);
+		int lowpassFilterWidth = 6;
+		return new Resampler(sampRateIn, sampRateOut, new Scalar(lowpassCutoff), lowpassFilterWidth);
+	}
+
+	/**
+	 * The number of samples produced by resampling the specified number of samples.
+	 */
+	public static long getOutputLength(long samples, int sampRateIn, int sampRateOut) {
+		if (sampRateIn == sampRateOut) return samples;
+
+		// This is getNumOutputSamples(samples, true), without computing the filter tables
+		int tickFreq = WaveMath.lcm(sampRateIn, sampRateOut);
+		long intervalLengthInTicks = samples * (tickFreq / sampRateIn);
+		if (intervalLengthInTicks <= 0) return 0;
+
+		int ticksPerOutputPeriod = tickFreq / sampRateOut;
+		long lastOutputSamp = intervalLengthInTicks / ticksPerOutputPeriod;
+		if (lastOutputSamp * ticksPerOutputPeriod == intervalLengthInTicks) lastOutputSamp--;
+		return lastOutputSamp + 1;
+	}
+
+	/**
+	 * Resample the audio to the specified sample rate, one chunk at a time. If the audio
+	 * already has that sample rate, it is returned as is.
+	 */
+	public static WaveData resample(WaveData data, int sampleRate) {
+		if (data.getSampleRate() == sampleRate) return data;
+		return new WaveData(resample(data.getCollection(), data.getSampleRate(), sampleRate), sampleRate);
+	}
+
+	public static PackedCollection<?> resample(PackedCollection<?> wave, int sampRateIn, int sampRateOut) {
+		Resampler resampler = create(sampRateIn, sampRateOut);
+
+		int length = wave.getMemLength();
+		long total = resampler.getNumOutputSamples(length, true);
+		if (total >= Integer.MAX_VALUE) throw new UnsupportedOperationException("Cannot resample");
+
+		PackedCollection<?> output = WaveData.allocateCollection((int) total);
+		int pos = 0;
+
+		for (int start = 0; start < length || start == 0; start += CHUNK_SIZE) {
+			int count = Math.min(CHUNK_SIZE, length - start);
+			boolean flush = start + count >= length;
+
+			double out[] = resampler.resample(wave.toArray(start, count), 0, count, flush);
+			if (out.length > 0) output.setMem(pos, out);
+			pos += out.length;
+
+			if (flush) break;
 		}
+
+		assert pos == total;
 		return output;
 	}
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.feature;
+
+import org.almostrealism.algebra.PairBank;
+import org.almostrealism.algebra.Scalar;
+import org.almostrealism.audio.computations.ComplexFFT;
+import org.almostrealism.audio.computations.FFTPlanCache;
+import org.almostrealism.audio.computations.RealFFT;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.collect.TraversalPolicy;
+
+/**
+ * An {@link STFT} computes the short-time Fourier transform of a waveform, producing a
+ * (frames x bins x 2) collection of complex values, and the inverse of that transform
+ * using windowed overlap-add.
+ * <br>
+ * Frames are centered on multiples of the hop size, with the waveform padded by zeros on
+ * either side, so that every sample (including the first) is covered by the middle of a
+ * window. Each frame is multiplied by the window function and padded to the next power of
+ * two before it is transformed, and there are (padded size / 2 + 1) bins in each frame. The
+ * inverse transform multiplies each frame by the window function again and divides the sum
+ * of the overlapping frames by the sum of the squared windows, so that a waveform is
+ * recovered exactly (apart from rounding) when the spectrum has not been modified.
+ * <br>
+ * The frames are transformed one at a time, because the compiled {@link ComplexFFT} performs
+ * a single transform, but the inverse transform recovers two frames with each evaluation by
+ * transforming the spectrum of one frame plus i times the spectrum of the next. An
+ * {@link STFT} uses the transforms that the {@link FFTPlanCache} retains for the thread which
+ * creates it, so it should only be used by that thread.
+ *
+ * @author  Michael Murray
+ */
+public class STFT {
+	private static final double epsilon = 1e-8;
+
+	private final int windowSize, hopSize, fftSize;
+	private final double window[];
+	private final RealFFT fft;
+	private final ComplexFFT inverse;
+	private final PairBank inverseInput;
+
+	public STFT(int windowSize, int hopSize) {
+		this(windowSize, hopSize, "hanning");
+	}
+
+	/**
+	 * @param windowType  Any of the window types supported by {@link FeatureWindowFunction}.
+	 */
+	public STFT(int windowSize, int hopSize, String windowType) {
+		if (windowSize < 4 || hopSize < 1 || hopSize > windowSize) {
+			throw new IllegalArgumentException("Invalid window size " + windowSize + " or hop size " + hopSize);
+		}
+
+		this.windowSize = windowSize;
+		this.hopSize = hopSize;
+		this.fftSize = FrameExtractionSettings.RoundUpToNearestPowerOfTwo(windowSize);
+		this.window = new FeatureWindowFunction(windowSize, windowType, new Scalar(0.42)).getCoefficients();
+		this.fft = FFTPlanCache.real(fftSize);
+		this.inverse = FFTPlanCache.complex(fftSize, false);
+		this.inverseInput = new PairBank(fftSize);
+	}
+
+	public int getWindowSize() { return windowSize; }
+
+	public int getHopSize() { return hopSize; }
+
+	/**
+	 * The size of the transform, which is the window size rounded up to a power of two.
+	 */
+	public int getFFTSize() { return fftSize; }
+
+	public int getBins() { return fftSize / 2 + 1; }
+
+	/**
+	 * The number of frames for a waveform with the specified number of samples.
+	 */
+	public int getFrameCount(int samples) {
+		return 1 + samples / hopSize;
+	}
+
+	public PackedCollection<?> forward(WaveData wave) {
+		return forward(wave.getCollection());
+	}
+
+	/**
+	 * Compute the transform of every frame of the waveform, returning a
+	 * (frames x bins x 2) collection of real and imaginary parts.
+	 */
+	public PackedCollection<?> forward(PackedCollection<?> wave) {
+		double samples[] = wave.toArray(0, wave.getMemLength());
+		int frames = getFrameCount(samples.length);
+		int bins = getBins();
+
+		double data[] = new double[frames * fftSize];
+
+		for (int f = 0; f < frames; f++) {
+			int start = f * hopSize - windowSize / 2;
+
+			for (int i = 0; i < windowSize; i++) {
+				int s = start + i;
+				if (s >= 0 && s < samples.length) data[f * fftSize + i] = window[i] * samples[s];
+			}
+		}
+
+		double spectrum[] = new double[frames * 2 * bins];
+
+		for (int f = 0; f < frames; f++) {
+			double x[] = fft.transform(data, f * fftSize);
+			System.arraycopy(x, 0, spectrum, f * 2 * bins, 2 * bins);
+		}
+
+		PackedCollection<?> result = new PackedCollection(new TraversalPolicy(frames, bins, 2));
+		result.setMem(0, spectrum);
+		return result;
+	}
+
+	public WaveData inverse(PackedCollection<?> spectrum, int length, int sampleRate) {
+		return new WaveData(inverse(spectrum, length), sampleRate);
+	}
+
+	/**
+	 * Recover a waveform of the specified length from a (frames x bins x 2) collection
+	 * produced by {@link #forward(PackedCollection)}, or a modified version of one.
+	 */
+	public PackedCollection<?> inverse(PackedCollection<?> spectrum, int length) {
+		int bins = getBins();
+		int frames = spectrum.getMemLength() / (2 * bins);
+		double data[] = spectrum.toArray(0, frames * 2 * bins);
+
+		double out[] = new double[length];
+		double norm[] = new double[length];
+		double full[] = new double[2 * fftSize];
+
+		// The spectra of two real frames, a and b, are combined as a + ib so that
+		// one transform produces frame a as its real part and frame b as its imaginary part
+		for (int f = 0; f < frames; f += 2) {
+			boolean pair = f + 1 < frames;
+
+			for (int k = 0; k < fftSize; k++) {
+				double ar = real(data, f, k), ai = imaginary(data, f, k);
+				double br = pair ? real(data, f + 1, k) : 0.0;
+				double bi = pair ? imaginary(data, f + 1, k) : 0.0;
+
+				full[2 * k] = ar - bi;
+				full[2 * k + 1] = ai + br;
+			}
+
+			inverseInput.setMem(0, full);
+			double x[] = inverse.evaluate(inverseInput).toArray(0, 2 * fftSize);
+
+			overlapAdd(x, 0, f, out, norm);
+			if (pair) overlapAdd(x, 1, f + 1, out, norm);
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (norm[i] > epsilon) out[i] /= norm[i];
+		}
+
+		PackedCollection<?> result = WaveData.allocateCollection(length);
+		result.setMem(0, out);
+		return result;
+	}
+
+	/**
+	 * Add the windowed samples of a frame, which are either the real (part 0) or the imaginary
+	 * (part 1) parts of the inverse transform, to the output at the position of the frame.
+	 */
+	private void overlapAdd(double x[], int part, int frame, double out[], double norm[]) {
+		int start = frame * hopSize - windowSize / 2;
+
+		for (int i = 0; i < windowSize; i++) {
+			int s = start + i;
+			if (s < 0 || s >= out.length) continue;
+
+			out[s] += window[i] * x[2 * i + part];
+			norm[s] += window[i] * window[i];
+		}
+	}
+
+	/**
+	 * The real part of bin k of the full spectrum of a frame, which is conjugate symmetric
+	 * because the frame is real, so the bins beyond the last are not stored.
+	 */
+	private double real(double data[], int frame, int k) {
+		int bins = getBins();
+		return data[frame * 2 * bins + 2 * (k < bins ? k : fftSize - k)];
+	}
+
+	/**
+	 * The imaginary part of bin k of the full spectrum of a frame. The first and last
+	 * bins of a real frame are real, and any imaginary part they have in a modified
+	 * spectrum is ignored, as it would only contribute to the imaginary part of the frame.
+	 */
+	private double imaginary(double data[], int frame, int k) {
+		if (k == 0 || k == fftSize / 2) return 0.0;
+
+		int bins = getBins();
+		double v = data[frame * 2 * bins + 2 * (k < bins ? k : fftSize - k) + 1];
+		return k < bins ? v : -v;
+	}
+}
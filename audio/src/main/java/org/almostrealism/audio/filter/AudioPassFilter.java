@@ -33,6 +33,7 @@ public class AudioPassFilter implements TemporalFactor<PackedCollection<?>>, Lif
 	private Producer<PackedCollection<?>> frequency;
 	private Producer<Scalar> resonance;
 	private Producer<PackedCollection<?>> input;
+	private Scalar lastFrequency, lastResonance;
 
 	private boolean high;
 
@@ -45,6 +46,8 @@ public class AudioPassFilter implements TemporalFactor<PackedCollection<?>>, Lif
 		this.frequency = _bound(frequency, 0.0, 20000);
 		this.resonance = resonance;
 		this.high = high;
+		this.lastFrequency = new Scalar(-1.0);
+		this.lastResonance = new Scalar(0.0);
 		setSampleRate(sampleRate);
 	}
 
@@ -88,11 +91,14 @@ public class AudioPassFilter implements TemporalFactor<PackedCollection<?>>, Lif
 
 	@Override
 	public Supplier<Runnable> tick() {
-		return new AudioPassFilterComputation(data, frequency, resonance, input, high);
+		return new AudioPassFilterComputation(data, frequency, resonance, input, lastFrequency, lastResonance, high);
 	}
 
 	@Override
 	public void reset() {
 		this.data.reset();
+
+		// The coefficients have been cleared, so they must be computed again
+		this.lastFrequency.setValue(-1.0);
 	}
 }
\ No newline at end of file
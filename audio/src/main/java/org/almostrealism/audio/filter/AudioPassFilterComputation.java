@@ -18,19 +18,39 @@ package org.almostrealism.audio.filter;
 
 import io.almostrealism.scope.ArrayVariable;
 import io.almostrealism.code.ScopeInputManager;
+import io.almostrealism.expression.Expression;
 import io.almostrealism.relation.Producer;
+import io.almostrealism.relation.Provider;
 import org.almostrealism.algebra.Scalar;
 import org.almostrealism.audio.data.AudioFilterData;
 import org.almostrealism.collect.PackedCollection;
 import org.almostrealism.hardware.DynamicOperationComputationAdapter;
 import org.almostrealism.CodeFeatures;
 
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 public class AudioPassFilterComputation extends DynamicOperationComputationAdapter implements CodeFeatures {
+	/**
+	 * If true, the coefficients of the filter are only computed again when the frequency
+	 * or the resonance differs from the values they were last computed for, rather than
+	 * for every sample.
+	 */
+	public static boolean enableCoefficientCache = true;
+
 	private boolean high;
 
 	public AudioPassFilterComputation(AudioFilterData data, Producer<PackedCollection<?>> frequency, Producer<Scalar> resonance, Producer<PackedCollection<?>> input, boolean high) {
+		this(data, frequency, resonance, input, new Scalar(-1.0), new Scalar(0.0), high);
+	}
+
+	/**
+	 * @param lastFrequency  The frequency that the coefficients were last computed for,
+	 *                       which should initially be a value the frequency can never be.
+	 * @param lastResonance  The resonance that the coefficients were last computed for.
+	 */
+	public AudioPassFilterComputation(AudioFilterData data, Producer<PackedCollection<?>> frequency, Producer<Scalar> resonance,
+									  Producer<PackedCollection<?>> input, Scalar lastFrequency, Scalar lastResonance, boolean high) {
 		super(data::getOutput,
 				(Supplier) frequency,
 				(Supplier) resonance,
@@ -46,7 +66,9 @@ public class AudioPassFilterComputation extends DynamicOperationComputationAdapt
 				data::getOutputHistory0,
 				data::getOutputHistory1,
 				data::getOutputHistory2,
-				(Supplier) input);
+				(Supplier) input,
+				() -> new Provider<>(lastFrequency),
+				() -> new Provider<>(lastResonance));
 		this.high = high;
 	}
 
@@ -66,6 +88,8 @@ public class AudioPassFilterComputation extends DynamicOperationComputationAdapt
 	public ArrayVariable getOutputHistory1() { return getArgument(13, 2); }
 	public ArrayVariable getOutputHistory2() { return getArgument(14, 2); }
 	public ArrayVariable getInput() { return getArgument(15, 1); }
+	public ArrayVariable getLastFrequency() { return getArgument(16, 2); }
+	public ArrayVariable getLastResonance() { return getArgument(17, 2); }
 
 	protected String output() { return getOutput().ref(0); }
 	protected String frequency() { return getFrequency().ref(0); }
@@ -83,6 +107,8 @@ public class AudioPassFilterComputation extends DynamicOperationComputationAdapt
 	protected String outputHistory1() { return getOutputHistory1().ref(0); }
 	protected String outputHistory2() { return getOutputHistory2().ref(0); }
 	protected String input() { return getInput().ref(0); }
+	protected String lastFrequency() { return getLastFrequency().ref(0); }
+	protected String lastResonance() { return getLastResonance().ref(0); }
 
 	@Override
 	public void prepareScope(ScopeInputManager manager) {
@@ -93,34 +119,39 @@ public class AudioPassFilterComputation extends DynamicOperationComputationAdapt
 		String one = stringForDouble(1.0);
 
 		if (high) {
-			addVariable(getC().valueAt(0).assign(e("tan(" + stringForDouble(Math.PI) +
+			addVariable(getC().valueAt(0).assign(coefficient(getC(), "tan(" + stringForDouble(Math.PI) +
 									" * " + frequency() + " / " + sampleRate() + ")",
-									getFrequency(), getSampleRate())));
-			addVariable(getA1().valueAt(0).assign(e(one +
+									getFrequency(), getSampleRate()))));
+			addVariable(getA1().valueAt(0).assign(coefficient(getA1(), one +
 							" / (" + one + " + " + resonance() + " * " + c() + " + " + c() + " * " + c() + ")",
-					getResonance(), getC())));
-			addVariable(getA2().valueAt(0).assign(e(stringForDouble(-2.0) + " * " + a1(), getA1())));
+					getResonance(), getC()))));
+			addVariable(getA2().valueAt(0).assign(coefficient(getA2(), stringForDouble(-2.0) + " * " + a1(), getA1()))));
 			addVariable(getA3().valueAt(0).assign(getA1().valueAt(0)));
-			addVariable(getB1().valueAt(0).assign(e(stringForDouble(2.0) +
-					" * (" + c() + " * " + c() + " - " + one + ") * " + a1(), getC(), getA1())));
-			addVariable(getB2().valueAt(0).assign(
-					e("(" + one + " - " + resonance() + " * " + c() + " + " + c() + " * " + c() + ") * " + a1(),
-							getResonance(), getC(), getA1())));
+			addVariable(getB1().valueAt(0).assign(coefficient(getB1(), stringForDouble(2.0) +
+					" * (" + c() + " * " + c() + " - " + one + ") * " + a1(), getC(), getA1()))));
+			addVariable(getB2().valueAt(0).assign(coefficient(getB2(),
+					"(" + one + " - " + resonance() + " * " + c() + " + " + c() + " * " + c() + ") * " + a1(),
+							getResonance(), getC(), getA1()))));
 		} else {
-			addVariable(getC().valueAt(0).assign(e(
+			addVariable(getC().valueAt(0).assign(coefficient(getC(),
 								one + " / tan(" + stringForDouble(Math.PI) +
 										" * " + frequency() + " / " + sampleRate() + ")",
-										getFrequency(), getSampleRate())));
-			addVariable(getA1().valueAt(0).assign(e(one +
+										getFrequency(), getSampleRate()))));
+			addVariable(getA1().valueAt(0).assign(coefficient(getA1(), one +
 							" / (" + one + " + " + resonance() + " * " + c() + " + " + c() + " * " + c() + ")",
-							getResonance(), getC())));
-			addVariable(getA2().valueAt(0).assign(e(stringForDouble(2.0) + " * " + a1(), getA1())));
+							getResonance(), getC()))));
+			addVariable(getA2().valueAt(0).assign(coefficient(getA2(), stringForDouble(2.0) + " * " + a1(), getA1()))));
 			addVariable(getA3().valueAt(0).assign(getA1().valueAt(0)));
-			addVariable(getB1().valueAt(0).assign(e(stringForDouble(2.0) +
-							" * (" + one + " - " + c() + " * " + c() + ") * " + a1(), getC(), getA1())));
-			addVariable(getB2().valueAt(0).assign(
-					e("(" + one + " - " + resonance() + " * " + c() + " + " + c() + " * " + c() + ") * " + a1(),
-							getResonance(), getC(), getA1())));
+			addVariable(getB1().valueAt(0).assign(coefficient(getB1(), stringForDouble(2.0) +
+							" * (" + one + " - " + c() + " * " + c() + ") * " + a1(), getC(), getA1()))));
+			addVariable(getB2().valueAt(0).assign(coefficient(getB2(),
+					"(" + one + " - " + resonance() + " * " + c() + " + " + c() + " * " + c() + ") * " + a1(),
+							getResonance(), getC(), getA1()))));
+		}
+
+		if (enableCoefficientCache) {
+			addVariable(getLastFrequency().valueAt(0).assign(getFrequency().valueAt(0)));
+			addVariable(getLastResonance().valueAt(0).assign(getResonance().valueAt(0)));
 		}
 
 		addVariable(getOutput().valueAt(0).assign(
@@ -136,4 +167,26 @@ public class AudioPassFilterComputation extends DynamicOperationComputationAdapt
 		addVariable(getOutputHistory1().valueAt(0).assign(getOutputHistory0().valueAt(0)));
 		addVariable(getOutputHistory0().valueAt(0).assign(getOutput().valueAt(0)));
 	}
+
+	/**
+	 * Returns an {@link Expression} for the specified coefficient which, when the coefficient
+	 * cache is enabled, only evaluates the given expression if the frequency or the resonance
+	 * has changed since the coefficients were last computed, and otherwise keeps the value that
+	 * is already stored.
+	 */
+	protected Expression<Double> coefficient(ArrayVariable coefficient, String exp, ArrayVariable... dependencies) {
+		if (!enableCoefficientCache) return new Expression<>(Double.class, exp, dependencies);
+
+		String changed = frequency() + " != " + lastFrequency() + " || " + resonance() + " != " + lastResonance();
+
+		ArrayVariable all[] = Arrays.copyOf(dependencies, dependencies.length + 5);
+		all[dependencies.length] = coefficient;
+		all[dependencies.length + 1] = getFrequency();
+		all[dependencies.length + 2] = getResonance();
+		all[dependencies.length + 3] = getLastFrequency();
+		all[dependencies.length + 4] = getLastResonance();
+
+		return new Expression<>(Double.class,
+				"(" + changed + ") ? (" + exp + ") : " + coefficient.ref(0), all);
+	}
 }
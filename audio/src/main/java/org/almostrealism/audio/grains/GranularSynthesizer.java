@@ -55,18 +55,20 @@ public class GranularSynthesizer implements ParameterizedWaveDataProviderFactory
 	public static double ampModWavelengthMin = 0.1;
 	public static double ampModWavelengthMax = 10;
 
-	private static ContextSpecific<KernelizedEvaluable<Pair<?>>> sourceKernel;
-	private static ContextSpecific<KernelizedEvaluable<Scalar>> playbackKernel;
-	private static ContextSpecific<KernelizedEvaluable<Scalar>> modKernel;
+	private static ThreadLocal<ContextSpecific<KernelizedEvaluable<Pair<?>>>> sourceKernel;
+	private static ThreadLocal<ContextSpecific<KernelizedEvaluable<Scalar>>> playbackKernel;
+	private static ThreadLocal<ContextSpecific<KernelizedEvaluable<Scalar>>> modKernel;
 
 	static {
-		sourceKernel = new DefaultContextSpecific<>(() ->
+		// Each thread which renders grains has its own kernels,
+		// as a compiled kernel cannot be evaluated by more than one thread at a time
+		sourceKernel = ThreadLocal.withInitial(() -> new DefaultContextSpecific<>(() ->
 			Ops.ops().pair(Ops.ops().scalarsMultiply(
 						Ops.ops().v(Scalar.class, 1), Ops.ops().v(Scalar.class, 2, -1)),
 					Ops.ops().v(Scalar.class, 0)).get()
-		);
+		));
 
-		playbackKernel = new DefaultContextSpecific<>(() -> {
+		playbackKernel = ThreadLocal.withInitial(() -> new DefaultContextSpecific<>(() -> {
 			TraversalPolicy grainShape = new TraversalPolicy(3);
 			Producer<PackedCollection> g = Ops.ops().v(PackedCollection.class, 1, -1);
 			ScalarProducerBase pos = Ops.ops().scalar(grainShape, g, 0).add(
@@ -75,14 +77,14 @@ public class GranularSynthesizer implements ParameterizedWaveDataProviderFactory
 					.multiply(OutputLine.sampleRate);
 			Producer cursor = Ops.ops().pair(pos, Ops.ops().v(0.0));
 			return new AcceleratedTimeSeriesValueAt(Ops.ops().v(AcceleratedTimeSeries.class, 3, -1), cursor).get();
-		});
+		}));
 
-		modKernel = new DefaultContextSpecific<>(() ->
+		modKernel = ThreadLocal.withInitial(() -> new DefaultContextSpecific<>(() ->
 				Ops.ops().sinw(Ops.ops().scalarSubtract(Ops.ops().v(Scalar.class, 0),
 							Ops.ops().v(Scalar.class, 2, -1)),
 							Ops.ops().v(Scalar.class, 3, -1),
 							Ops.ops().v(Scalar.class, 4, -1))
-					.multiply(Ops.ops().v(Scalar.class, 1)).get());
+					.multiply(Ops.ops().v(Scalar.class, 1)).get()));
 
 
 	}
@@ -173,17 +175,17 @@ public class GranularSynthesizer implements ParameterizedWaveDataProviderFactory
 						// w(source).map(k -> new ReceptorCell<>(sourceRec)).iter(source.getWave().getCount(), false).get().run();
 
 						PairBank sourceRecBank = new PairBank(source.getCollection().getMemLength(), sourceRec, 2, MemoryBankAdapter.defaultCacheLevel);
-						sourceKernel.getValue().kernelEvaluate(sourceRecBank, source.getCollection(), WaveOutput.timelineScalar.getValue(), new Scalar(source.getSampleRate()));
+						sourceKernel.get().getValue().kernelEvaluate(sourceRecBank, source.getCollection(), WaveOutput.timelineScalar.getValue(), new Scalar(source.getSampleRate()));
 						sourceRec.set(0, 1, source.getCollection().getMemLength() + 1);
 
 						ScalarBank raw = new ScalarBank(getCount());
-						playbackKernel.getValue().kernelEvaluate(raw, WaveOutput.timelineScalar.getValue(), grain, playbackRate, sourceRec);
+						playbackKernel.get().getValue().kernelEvaluate(raw, WaveOutput.timelineScalar.getValue(), grain, playbackRate, sourceRec);
 
 						ScalarBank result = new ScalarBank(getCount());
 						double amp = gp.getAmp().apply(params);
 						double phase = gp.getPhase().apply(params);
 						double wavelength = ampModWavelengthMin + Math.abs(gp.getWavelength().apply(params)) * (ampModWavelengthMax - ampModWavelengthMin);
-						modKernel.getValue().kernelEvaluate(result, WaveOutput.timelineScalar.getValue(), raw, new Scalar(phase), new Scalar(wavelength), new Scalar(amp));
+						modKernel.get().getValue().kernelEvaluate(result, WaveOutput.timelineScalar.getValue(), raw, new Scalar(phase), new Scalar(wavelength), new Scalar(amp));
 
 						results.add(result);
 
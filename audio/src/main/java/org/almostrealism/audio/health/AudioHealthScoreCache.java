@@ -0,0 +1,223 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.health;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.almostrealism.heredity.Genome;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link AudioHealthScoreCache} retains the {@link AudioHealthScore} computed for a
+ * {@link Genome}, so that a genome which survives to the next generation unchanged
+ * does not need to be rendered again. Entries are identified by a hash of the
+ * {@link Genome#signature()} (which includes the values of every chromosome)
+ * and a description of the scene the genome was evaluated in.
+ * <br>
+ * Each entry is stored in the cache directory, along with a copy of the rendered
+ * output, and the least recently used entries are removed when the total size of
+ * the files in the cache exceeds the budget. The rendered output dominates the size
+ * of an entry, so the budget determines how many renders are retained.
+ *
+ * @author  Michael Murray
+ */
+public class AudioHealthScoreCache {
+	public static boolean enableVerbose = false;
+
+	private final File directory;
+	private final long budget;
+	private final ObjectMapper mapper;
+
+	private final LinkedHashMap<String, AudioHealthScore> entries;
+	private final Map<String, Long> sizes;
+	private long size;
+	private final AtomicLong hits, misses;
+
+	/**
+	 * @param budget  The maximum number of bytes retained in the directory.
+	 */
+	public AudioHealthScoreCache(File directory, long budget) {
+		this.directory = directory;
+		this.budget = budget;
+		this.mapper = new ObjectMapper();
+		this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.sizes = new HashMap<>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		load();
+	}
+
+	public File getDirectory() { return directory; }
+
+	/**
+	 * The maximum number of bytes retained in the directory.
+	 */
+	public long getBudget() { return budget; }
+
+	/**
+	 * The number of bytes currently retained in the directory.
+	 */
+	public synchronized long getSize() { return size; }
+
+	public long getHitCount() { return hits.get(); }
+
+	public long getMissCount() { return misses.get(); }
+
+	public synchronized int size() { return entries.size(); }
+
+	/**
+	 * Produce the key for the specified {@link Genome}, evaluated in a scene
+	 * with the specified settings. The settings are included in the key using
+	 * their JSON representation.
+	 */
+	public String key(Genome<?> genome, Object settings) {
+		try {
+			return key(genome.signature() + "|" + mapper.writeValueAsString(settings));
+		} catch (JsonProcessingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	protected String key(String content) {
+		try {
+			byte hash[] = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder buf = new StringBuilder();
+			for (byte b : hash) buf.append(String.format("%02x", b));
+			return buf.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public synchronized Optional<AudioHealthScore> get(String key) {
+		AudioHealthScore score = entries.get(key);
+
+		if (score == null) {
+			misses.incrementAndGet();
+			return Optional.empty();
+		}
+
+		hits.incrementAndGet();
+		return Optional.of(new AudioHealthScore(score.getScore(), score.getOutput()));
+	}
+
+	/**
+	 * Store the specified score. If the score has an output file, the file is copied
+	 * into the cache directory, so that it is not lost when the original output file
+	 * is reused, and the stored score refers to the copy.
+	 */
+	public synchronized void put(String key, AudioHealthScore score) {
+		String output = score.getOutput();
+
+		try {
+			if (output != null && new File(output).exists()) {
+				File copy = new File(directory, key + ".wav");
+				Files.copy(new File(output).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				output = copy.getPath();
+			}
+
+			AudioHealthScore stored = new AudioHealthScore(score.getScore(), output);
+			mapper.writeValue(new File(directory, key + ".json"), stored);
+			entries.put(key, stored);
+			track(key);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		evict(key);
+	}
+
+	public void printStatistics() {
+		System.out.println("AudioHealthScoreCache: " + size() + " entries (" + getSize() / (1024 * 1024) + "mb), " +
+				getHitCount() + " hits, " + getMissCount() + " misses");
+	}
+
+	/**
+	 * Record the size of the files for the specified entry.
+	 */
+	private void track(String key) {
+		long bytes = new File(directory, key + ".json").length() + new File(directory, key + ".wav").length();
+		Long previous = sizes.put(key, bytes);
+		size += bytes - (previous == null ? 0 : previous);
+	}
+
+	/**
+	 * Remove the least recently used entries, other than the specified entry,
+	 * until the size of the cache is within the budget.
+	 */
+	private void evict(String retain) {
+		Iterator<Map.Entry<String, AudioHealthScore>> itr = entries.entrySet().iterator();
+
+		while (size > budget && itr.hasNext()) {
+			String key = itr.next().getKey();
+			if (key.equals(retain)) continue;
+
+			itr.remove();
+			Long bytes = sizes.remove(key);
+			if (bytes != null) size -= bytes;
+
+			new File(directory, key + ".json").delete();
+			new File(directory, key + ".wav").delete();
+
+			if (enableVerbose) System.out.println("AudioHealthScoreCache: Evicted " + key);
+		}
+	}
+
+	private void load() {
+		if (!directory.exists()) directory.mkdirs();
+
+		File files[] = directory.listFiles((dir, name) -> name.endsWith(".json"));
+		if (files == null) return;
+
+		// The oldest entries are loaded first, so they will be evicted first
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+		for (File f : files) {
+			String key = f.getName().substring(0, f.getName().length() - 5);
+
+			try {
+				entries.put(key, mapper.readValue(f, AudioHealthScore.class));
+				track(key);
+			} catch (IOException e) {
+				System.out.println("AudioHealthScoreCache: Unable to read " + f.getName() + " (" + e.getMessage() + ")");
+			}
+		}
+
+		evict(null);
+
+		if (enableVerbose) System.out.println("AudioHealthScoreCache: Loaded " + entries.size() + " entries");
+	}
+}
@@ -34,6 +34,7 @@ import org.almostrealism.heredity.TemporalCellular;
 public abstract class HealthComputationAdapter implements AudioHealthComputation<TemporalCellular> {
 	public static final int MEASURE_COUNT = 2;
 	public static int standardDuration = (int) (240 * OutputLine.sampleRate);
+	public static boolean enableStreamingOutput = false;
 
 	private TemporalCellular target;
 
@@ -53,11 +54,13 @@ public abstract class HealthComputationAdapter implements AudioHealthComputation
 	@Override
 	public synchronized Receptor<PackedCollection<?>> getOutput() {
 		if (out == null) {
-			out = new WaveOutput(() ->
+			Supplier<File> file = () ->
 					Optional.ofNullable(outputFileSupplier).map(s -> {
 						outputFile = new File(s.get());
 						return outputFile;
-					}).orElse(null), 24);
+					}).orElse(null);
+
+			out = enableStreamingOutput ? WaveOutput.streaming(file, 24) : new WaveOutput(file, 24);
 		}
 
 		return out;
@@ -43,6 +43,8 @@ public class SilenceDurationHealthComputation extends HealthComputationAdapter {
 		silenceListeners = new ArrayList<>();
 	}
 	
+	public double getSilenceValue() { return silenceValue; }
+
 	public void setMaxSilence(int sec) { this.maxSilence = (int) (sec * OutputLine.sampleRate); }
 	
 	public static void setStandardDuration(int sec) {
@@ -53,19 +53,46 @@ public class StableDurationHealthComputation extends SilenceDurationHealthComput
 
 	private Thread timeoutTrigger;
 	private boolean endTimeoutTrigger;
-	private long startTime;
+	private long startTime, pauseTime;
 	private Scalar abortFlag;
+	private boolean abortFlagEnabled;
+
+	private Runnable start, iterate, flush;
+	private long l;
+	private double errorMultiplier;
+	private boolean stopped;
+
+	private boolean progressMeasured;
+	private long measuredFrames, silentFrames;
+	private double peak;
 	
 	public StableDurationHealthComputation() {
 		super(6);
 		addSilenceListener(() -> encounteredSilence = true);
 		setBatchSize(enableLoop ? OutputLine.sampleRate / 2 : 1);
+		setAbortFlagEnabled(true);
 	}
 
 	public void setBatchSize(int iter) {
 		this.iter = iter;
 	}
 	
+	/**
+	 * If enabled, the abort flag of this computation is registered with {@link OperationList}
+	 * so that a timeout can interrupt a batch that is in progress. There is only one such flag
+	 * for the whole process, so computations which run concurrently must not enable it; for
+	 * those, a timeout is detected after the batch in progress completes.
+	 */
+	public void setAbortFlagEnabled(boolean enabled) { this.abortFlagEnabled = enabled; }
+
+	public boolean isAbortFlagEnabled() { return abortFlagEnabled; }
+
+	/**
+	 * If enabled, the frames of every batch are examined as they are rendered,
+	 * so that {@link #getProgressScore()} can reflect the audio produced so far.
+	 */
+	public void setProgressMeasured(boolean measured) { this.progressMeasured = measured; }
+
 	public void setMaxDuration(long sec) { this.max = (int) (sec * OutputLine.sampleRate); }
 
 	/**
@@ -138,76 +165,189 @@ public class StableDurationHealthComputation extends SilenceDurationHealthComput
 	}
 
 	protected boolean isTimeout() {
-		return enableTimeout && System.currentTimeMillis() - startTime > timeout;
+		long now = pauseTime > 0 ? pauseTime : System.currentTimeMillis();
+		return enableTimeout && now - startTime > timeout;
 	}
 
 	@Override
 	public AudioHealthScore computeHealth() {
+		boolean complete = false;
+
+		try {
+			start();
+			advance(max);
+			complete = true;
+		} finally {
+			if (!complete) abandon();
+		}
+
+		return finish();
+	}
+
+	/**
+	 * Prepare to render the target, so that it can be rendered in stages using
+	 * {@link #advance(long)}. The evaluation must be completed by {@link #finish()}.
+	 */
+	public void start() {
 		encounteredSilence = false;
-		OperationList.setAbortFlag(abortFlag);
+		if (abortFlagEnabled) OperationList.setAbortFlag(abortFlag);
 
 //		TODO  Restore average amplitude computation
 //		AverageAmplitude avg = new AverageAmplitude();
 //		meter.addListener(avg);
 
-		double score = 0.0;
-		double errorMultiplier = 1.0;
+		errorMultiplier = 1.0;
+		flush = null;
 
-		Runnable start;
-		Runnable iterate;
+		if (getWaveOut().isStreaming()) {
+			if (iter > getWaveOut().getStreamingCapacity()) {
+				throw new IllegalArgumentException("Batch size exceeds the capacity of the streaming output");
+			}
 
-		try {
-			start = runner.get();
-			iterate = runner.getContinue();
+			// Completed batches are written as they are rendered, or
+			// discarded if there will be no output
+			flush = enableOutput ? getWaveOut().flush().get() : getWaveOut().getData()::reset;
+		}
 
-			startTime = System.currentTimeMillis();
-			if (enableTimeout) startTimeoutTrigger();
+		start = runner.get();
+		iterate = runner.getContinue();
 
-			long l;
+		startTime = System.currentTimeMillis();
+		pauseTime = 0;
+		if (enableTimeout) startTimeoutTrigger();
 
-			l:
-			for (l = 0; l < max && !isTimeout(); l = l + iter) {
-				(l == 0 ? start : iterate).run();
+		l = 0;
+		stopped = false;
 
-				if ((int) getWaveOut().getCursor().getCursor() != l + iter) {
-					if (enableVerbose) {
-						System.out.println("StableDurationHealthComputation: Cursor out of sync (" +
-								(int) getWaveOut().getCursor().getCursor() + " != " + (l + iter) + ")");
-						System.exit(1);
-					} else {
-						System.out.print("N");
-					}
+		measuredFrames = 0;
+		silentFrames = 0;
+		peak = 0.0;
+	}
+
+	/**
+	 * Continue rendering the target, from wherever it was left by the previous call, until the
+	 * specified total number of frames (or the maximum duration) is reached. This returns false
+	 * if the evaluation cannot continue, because clipping, silence or a timeout has occurred
+	 * or the maximum duration has been reached. The time between calls does not count
+	 * towards the timeout, so other targets can be rendered in the meantime.
+	 */
+	public boolean advance(long frames) {
+		if (stopped) return false;
+
+		if (pauseTime > 0) {
+			startTime += System.currentTimeMillis() - pauseTime;
+			pauseTime = 0;
+		}
+
+		l: while (l < frames && l < max && !isTimeout()) {
+			(l == 0 ? start : iterate).run();
 
-					// TODO  This should just throw an exception: working around it should no longer be necessary
-					errorMultiplier *= 0.55;
-					break l;
+			if ((int) getWaveOut().getCursor().getCursor() != l + iter) {
+				if (enableVerbose) {
+					System.out.println("StableDurationHealthComputation: Cursor out of sync (" +
+							(int) getWaveOut().getCursor().getCursor() + " != " + (l + iter) + ")");
+					System.exit(1);
+				} else {
+					System.out.print("N");
 				}
 
-				getMeasures().forEach(m -> {
-					checkForSilence(m);
+				// TODO  This should just throw an exception: working around it should no longer be necessary
+				errorMultiplier *= 0.55;
+				stopped = true;
+				break l;
+			}
 
-					if (m.getClipCount() > 0) {
-						System.out.print("C");
-						if (enableVerbose) System.out.println();
-					}
+			if (progressMeasured) measure();
+			if (flush != null) flush.run();
 
-					if (encounteredSilence) {
-						System.out.print("S");
-						if (enableVerbose) System.out.println();
-					}
-				});
+			getMeasures().forEach(m -> {
+				checkForSilence(m);
 
-				// If clipping or silence occurs, report the health score
-				if (getMeasures().stream().anyMatch(m -> m.getClipCount() > 0) || encounteredSilence) break l;
+				if (m.getClipCount() > 0) {
+					System.out.print("C");
+					if (enableVerbose) System.out.println();
+				}
 
-				if (enableVerbose && (l + iter) % (OutputLine.sampleRate / 10) == 0) {
-					double v = l + iter;
-					System.out.println("StableDurationHealthComputation: " + v / OutputLine.sampleRate + " seconds");
-				} else if (!enableVerbose && (l + iter) % (OutputLine.sampleRate * 10) == 0) {
-					System.out.print(">");
+				if (encounteredSilence) {
+					System.out.print("S");
+					if (enableVerbose) System.out.println();
 				}
+			});
+
+			// If clipping or silence occurs, report the health score
+			if (getMeasures().stream().anyMatch(m -> m.getClipCount() > 0) || encounteredSilence) {
+				stopped = true;
+				break l;
+			}
+
+			if (enableVerbose && (l + iter) % (OutputLine.sampleRate / 10) == 0) {
+				double v = l + iter;
+				System.out.println("StableDurationHealthComputation: " + v / OutputLine.sampleRate + " seconds");
+			} else if (!enableVerbose && (l + iter) % (OutputLine.sampleRate * 10) == 0) {
+				System.out.print(">");
 			}
 
+			l = l + iter;
+		}
+
+		pauseTime = System.currentTimeMillis();
+		return !stopped && l < max && !isTimeout();
+	}
+
+	/**
+	 * Record the peak amplitude and the number of silent frames in the batch that was
+	 * just rendered. A streaming output only retains the frames of the current batch.
+	 */
+	protected void measure() {
+		int offset = getWaveOut().isStreaming() ? 0 : (int) l;
+
+		// The first entry of the series is reserved, and each
+		// entry is a pair of time and value
+		double series[] = getWaveOut().getData().toArray(2 * (offset + 1), 2 * iter);
+
+		for (int i = 0; i < iter; i++) {
+			double value = Math.abs(series[2 * i + 1]);
+			if (value < getSilenceValue()) silentFrames++;
+			if (value > peak) peak = value;
+		}
+
+		measuredFrames += iter;
+	}
+
+	/**
+	 * The number of frames that have been rendered since {@link #start()}.
+	 */
+	public long getFramesRendered() { return l; }
+
+	/**
+	 * The maximum number of frames that will be rendered.
+	 */
+	public long getMaxFrames() { return max; }
+
+	/**
+	 * The score that {@link #finish()} would report if the evaluation were to end now,
+	 * adjusted by how likely the audio rendered so far is to end in silence or clipping.
+	 * Every target that is still being rendered has the same duration, so without this
+	 * adjustment they could not be distinguished. The score is reduced in proportion to
+	 * the fraction of silent frames and to the peak amplitude, which is the part of the
+	 * clipping range that has already been used. If {@link #setProgressMeasured(boolean)}
+	 * is not enabled, only the duration is reported.
+	 */
+	public double getProgressScore() {
+		double score = (double) (l + iter) * errorMultiplier / (standardDuration + iter);
+		if (measuredFrames == 0) return score;
+
+		double silence = silentFrames / (double) measuredFrames;
+		return score * (1.0 - 0.5 * silence) * (1.0 - 0.5 * Math.min(1.0, peak));
+	}
+
+	/**
+	 * Complete the evaluation, write the output, and reset the target.
+	 */
+	public AudioHealthScore finish() {
+		double score = 0.0;
+
+		try {
 			if (isTimeout())
 				errorMultiplier *= 0.75;
 
@@ -238,6 +378,15 @@ public class StableDurationHealthComputation extends SilenceDurationHealthComput
 		return new AudioHealthScore(score, Optional.ofNullable(getOutputFile()).map(File::getPath).orElse(null));
 	}
 
+	/**
+	 * End an evaluation that failed, without writing any output.
+	 */
+	public void abandon() {
+		endTimeoutTrigger();
+		getWaveOut().reset();
+		reset();
+	}
+
 	@Override
 	public void reset() {
 		abortFlag.setValue(0.0);
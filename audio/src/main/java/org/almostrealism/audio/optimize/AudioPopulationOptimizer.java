@@ -33,6 +33,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -49,6 +50,14 @@ public class AudioPopulationOptimizer<O extends Temporal> extends PopulationOpti
 	public static final boolean enableWavOutput = true;
 	public static boolean enableIsolatedContext = false;
 
+	/**
+	 * Store the population using a {@link BinaryPopulationStore} rather than XML. The binary
+	 * store only retains the values of the genomes, not the types of their chromosomes and
+	 * genes, so this is disabled until every use of the decoded genomes has been verified to
+	 * behave the same as for the originals (see BinaryPopulationStoreTest).
+	 */
+	public static boolean enableBinaryStore = false;
+
 	private final String file;
 	private int tot;
 	private final AtomicInteger count;
@@ -78,7 +87,13 @@ public class AudioPopulationOptimizer<O extends Temporal> extends PopulationOpti
 
 	public void init() {
 		if (enableWavOutput) {
-			((StableDurationHealthComputation) getHealthComputation()).setOutputFile(() -> "health/Output-" + count.incrementAndGet() + ".wav");
+			Supplier<String> output = () -> "health/Output-" + count.incrementAndGet() + ".wav";
+
+			if (getHealthComputation() instanceof AudioScenePopulationPool.PooledHealthComputation) {
+				((AudioScenePopulationPool.PooledHealthComputation) getHealthComputation()).setOutputFile(output);
+			} else {
+				((StableDurationHealthComputation) getHealthComputation()).setOutputFile(output);
+			}
 		}
 	}
 
@@ -88,10 +103,36 @@ public class AudioPopulationOptimizer<O extends Temporal> extends PopulationOpti
 		this.cycleListener = r;
 	}
 
+	/**
+	 * The file used for the population when {@link #enableBinaryStore} is set.
+	 * If the population file is an XML file, this is the same file with the
+	 * extension ".bin" instead.
+	 */
+	public File getBinaryFile() {
+		return new File(file.endsWith(".xml") ? file.substring(0, file.length() - 4) + ".bin" : file);
+	}
+
 	public void readPopulation() throws FileNotFoundException {
 		List<Genome<PackedCollection<?>>> genomes;
 
-		if (new File(file).exists()) {
+		if (enableBinaryStore && BinaryPopulationStore.isBinary(getBinaryFile())) {
+			try {
+				genomes = new BinaryPopulationStore(getBinaryFile()).readAll();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+
+			PopulationOptimizer.console.println("Read chromosome data from " + getBinaryFile());
+		} else if (enableBinaryStore && new File(file).exists() && !BinaryPopulationStore.isBinary(new File(file))) {
+			try {
+				genomes = new BinaryPopulationStore(getBinaryFile()).importXml(new File(file));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+
+			PopulationOptimizer.console.println("Imported chromosome data from " + file + " to " + getBinaryFile() +
+					" (only the values of the genomes are retained, " + file + " is not modified)");
+		} else if (!enableBinaryStore && new File(file).exists()) {
 			genomes = read(new FileInputStream(file));
 			PopulationOptimizer.console.println("Read chromosome data from " + file);
 		} else {
@@ -148,6 +189,17 @@ public class AudioPopulationOptimizer<O extends Temporal> extends PopulationOpti
 	}
 
 	public void storePopulation() {
+		if (enableBinaryStore) {
+			try {
+				new BinaryPopulationStore(getBinaryFile()).write(getPopulation().getGenomes());
+				PopulationOptimizer.console.println("Wrote " + getBinaryFile());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+
+			return;
+		}
+
 		try {
 			store(new FileOutputStream(file));
 			PopulationOptimizer.console.println("Wrote " + file);
@@ -0,0 +1,591 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.optimize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.almostrealism.audio.AudioScene;
+import org.almostrealism.audio.OutputLine;
+import org.almostrealism.audio.health.AudioHealthComputation;
+import org.almostrealism.audio.health.AudioHealthScore;
+import org.almostrealism.audio.health.AudioHealthScoreCache;
+import org.almostrealism.audio.health.StableDurationHealthComputation;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.graph.Receptor;
+import org.almostrealism.hardware.OperationList;
+import org.almostrealism.heredity.Genome;
+import org.almostrealism.heredity.TemporalCellular;
+import org.almostrealism.optimize.Population;
+
+/**
+ * An {@link AudioScenePopulationPool} is a {@link Population} that evaluates its genomes
+ * concurrently, using a number of independent replicas. Each replica has its own
+ * {@link AudioScene}, {@link org.almostrealism.audio.Cells}, and
+ * {@link StableDurationHealthComputation} (and therefore its own
+ * {@link org.almostrealism.audio.WaveOutput}, {@link org.almostrealism.audio.AudioMeter}s
+ * and timeout), and takes the index of the next genome to evaluate from a shared queue.
+ * <br>
+ * The health of every genome is computed the first time the health of any of them is
+ * requested from the {@link AudioHealthComputation} returned by {@link #getHealthComputation()},
+ * and the results are retained until the genomes are replaced. This allows the pool to be
+ * used by an optimizer that requests the health of one genome at a time.
+ * <br>
+ * If {@link #enableSuccessiveHalving} is set, the genomes are evaluated in rungs. At the
+ * first rung every genome is rendered for a short prefix, and at every subsequent rung the
+ * remaining genomes continue rendering, from where they stopped, until they have been
+ * rendered for twice as long. Genomes which end before the end of a rung (because of
+ * clipping, silence or reaching the maximum duration) receive their final score. The others
+ * are ranked by their progress score, and the bottom {@link #successiveHalvingDrop} fraction
+ * is dropped, retaining the progress score as their score. Each rung is complete before the
+ * next one begins, so every genome is compared with all the genomes at the same rung.
+ * <br>
+ * Continuing a render requires a replica that retains its state, so the genomes are halved
+ * in brackets of at most {@link #successiveHalvingBracket} genomes, with a replica for each
+ * genome in the bracket. The renders of a bracket are still distributed among the threads
+ * of the pool, so the bracket size only determines the number of replicas, not the number
+ * of genomes rendered at once. A bracket that includes the whole population compares every
+ * genome with every other.
+ *
+ * @author  Michael Murray
+ */
+public class AudioScenePopulationPool<G> implements Population<G, PackedCollection<?>, TemporalCellular> {
+	public static boolean enableVerbose = false;
+
+	public static boolean enableSuccessiveHalving = false;
+	public static double successiveHalvingPrefix = 5.0;
+	public static double successiveHalvingDrop = 0.5;
+	public static int successiveHalvingBracket = 16;
+
+	private final Supplier<AudioScene<?>> scenes;
+	private final int replicaCount;
+
+	private List<Genome<G>> pop;
+	private Genome<G> templateGenome;
+	private List<Replica> replicas;
+	private Supplier<String> outputFile;
+	private int maxDuration;
+	private AudioHealthScoreCache cache;
+
+	private ExecutorService executor;
+	private AudioHealthScore scores[];
+	private boolean dropped[];
+	private int currentIndex;
+
+	private List<Integer> rungSizes;
+	private AtomicLong renderedFrames, savedFrames;
+
+	private final PooledHealthComputation health;
+
+	public AudioScenePopulationPool(Supplier<AudioScene<?>> scenes, int replicas) {
+		this(scenes, replicas, new ArrayList<>());
+	}
+
+	public AudioScenePopulationPool(Supplier<AudioScene<?>> scenes, int replicas, List<Genome<G>> population) {
+		if (replicas < 1) throw new IllegalArgumentException();
+
+		this.scenes = scenes;
+		this.replicaCount = replicas;
+		this.pop = population;
+		this.currentIndex = -1;
+		this.health = new PooledHealthComputation();
+	}
+
+	public int getReplicaCount() { return replicaCount; }
+
+	public void setOutputFile(Supplier<String> file) {
+		this.outputFile = file;
+		if (replicas != null) replicas.forEach(r -> r.health.setOutputFile(file));
+	}
+
+	public void setMaxDuration(int sec) {
+		this.maxDuration = sec;
+		if (replicas != null) replicas.forEach(r -> r.health.setMaxDuration(sec));
+	}
+
+	/**
+	 * Use the specified {@link AudioHealthScoreCache} to avoid evaluating
+	 * genomes that have already been evaluated for the same scene.
+	 */
+	public void setHealthCache(AudioHealthScoreCache cache) { this.cache = cache; }
+
+	public AudioHealthScoreCache getHealthCache() { return cache; }
+
+	public boolean isInitialized() { return replicas != null; }
+
+	/**
+	 * Build the replicas. The specified measures and output are not used, because every
+	 * replica delivers its output to its own {@link StableDurationHealthComputation}.
+	 */
+	@Override
+	public void init(Genome<G> templateGenome, List<? extends Receptor<PackedCollection<?>>> measures, Receptor<PackedCollection<?>> output) {
+		init(templateGenome);
+	}
+
+	public void init(Genome<G> templateGenome) {
+		if (replicas != null) {
+			throw new IllegalStateException("Replicas have already been created");
+		}
+
+		this.templateGenome = templateGenome;
+		replicas = IntStream.range(0, replicaCount)
+				.mapToObj(i -> new Replica(templateGenome))
+				.collect(Collectors.toList());
+
+		executor = Executors.newFixedThreadPool(replicaCount, r -> {
+			Thread t = new Thread(r, "AudioScenePopulationPool");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public List<Genome<G>> getGenomes() { return pop; }
+
+	public void setGenomes(List<Genome<G>> pop) {
+		this.pop = pop;
+		this.scores = null;
+		this.dropped = null;
+		if (replicas != null) replicas.forEach(r -> r.population.setGenomes(pop));
+	}
+
+	/**
+	 * Select the genome that the {@link AudioHealthComputation} returned by
+	 * {@link #getHealthComputation()} will report the health of. The returned
+	 * {@link TemporalCellular} does nothing, as the genome is rendered by one
+	 * of the replicas.
+	 */
+	@Override
+	public TemporalCellular enableGenome(int index) {
+		if (currentIndex >= 0) {
+			throw new IllegalStateException();
+		}
+
+		currentIndex = index;
+
+		return new TemporalCellular() {
+			@Override
+			public Supplier<Runnable> setup() { return new OperationList("AudioScenePopulationPool Setup"); }
+
+			@Override
+			public Supplier<Runnable> tick() { return new OperationList("AudioScenePopulationPool Tick"); }
+		};
+	}
+
+	@Override
+	public void disableGenome() {
+		currentIndex = -1;
+	}
+
+	@Override
+	public int size() { return getGenomes().size(); }
+
+	public AudioHealthComputation<TemporalCellular> getHealthComputation() { return health; }
+
+	/**
+	 * Compute the health of every genome in the population, distributing
+	 * the work among the replicas, and retain the results.
+	 */
+	public synchronized List<AudioHealthScore> computeHealth() {
+		if (replicas == null) {
+			throw new IllegalStateException("Population has not been initialized");
+		}
+
+		long start = System.currentTimeMillis();
+
+		AudioHealthScore results[] = new AudioHealthScore[size()];
+		boolean dropped[] = new boolean[size()];
+		String keys[] = new String[size()];
+
+		rungSizes = new ArrayList<>();
+		renderedFrames = new AtomicLong();
+		savedFrames = new AtomicLong();
+
+		List<Integer> indices = new ArrayList<>();
+
+		for (int i = 0; i < size(); i++) {
+			if (cache != null) {
+				keys[i] = cache.key(getGenomes().get(i), replicas.get(0).scene.getSettings());
+				results[i] = cache.get(keys[i]).orElse(null);
+			}
+
+			if (results[i] == null) indices.add(i);
+		}
+
+		int evaluations = indices.size();
+
+		if (enableSuccessiveHalving) {
+			computeHealthInRungs(indices, results, dropped);
+		} else {
+			evaluate(indices, (r, index) -> results[index] = r.computeHealth(index));
+		}
+
+		if (cache != null) {
+			// The score of a genome that was dropped depends on the
+			// rest of the population, so it should not be reused
+			indices.stream().filter(i -> !dropped[i]).forEach(i -> cache.put(keys[i], results[i]));
+		}
+
+		if (enableVerbose) {
+			System.out.println("AudioScenePopulationPool: Computed health of " + evaluations + " genomes using " +
+					replicaCount + " replicas in " + (System.currentTimeMillis() - start) + " msec");
+			if (cache != null) cache.printStatistics();
+		}
+
+		if (enableSuccessiveHalving) {
+			printSavings(System.currentTimeMillis() - start, (int) IntStream.range(0, dropped.length).filter(i -> dropped[i]).count());
+		}
+
+		scores = results;
+		this.dropped = dropped;
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Render the specified genomes at successively longer rungs, in brackets of at most
+	 * {@link #successiveHalvingBracket} genomes, dropping the genomes with the lowest
+	 * progress scores at the end of each rung.
+	 */
+	protected void computeHealthInRungs(List<Integer> indices, AudioHealthScore results[], boolean dropped[]) {
+		int bracket = Math.max(1, successiveHalvingBracket);
+		addReplicas(Math.min(bracket, indices.size()));
+
+		for (int b = 0; b < indices.size(); b += bracket) {
+			halve(indices.subList(b, Math.min(b + bracket, indices.size())), results, dropped);
+		}
+	}
+
+	/**
+	 * Render every one of the specified genomes using its own replica, so that each
+	 * survivor of a rung continues rendering from where it stopped at the next rung.
+	 */
+	private void halve(List<Integer> indices, AudioHealthScore results[], boolean dropped[]) {
+		long maxFrames = replicas.get(0).health.getMaxFrames();
+		long frames = (long) (successiveHalvingPrefix * OutputLine.sampleRate);
+		double progress[] = new double[size()];
+
+		Map<Integer, Replica> assigned = new HashMap<>();
+		for (int i = 0; i < indices.size(); i++) assigned.put(indices.get(i), replicas.get(i));
+
+		List<Integer> active = indices;
+
+		try {
+			for (int i : active) assigned.get(i).begin(i);
+
+			for (int r = 0; !active.isEmpty(); r++) {
+				if (rungSizes.size() <= r) rungSizes.add(0);
+				rungSizes.set(r, rungSizes.get(r) + active.size());
+
+				long rungFrames = frames;
+				run(active.stream().map(i -> (Runnable) () -> {
+					Replica replica = assigned.get(i);
+
+					if (replica.advance(rungFrames)) {
+						progress[i] = replica.getProgressScore();
+					} else {
+						results[i] = replica.finish();
+					}
+				}).collect(Collectors.toList()));
+
+				List<Integer> continuing = active.stream().filter(i -> results[i] == null).collect(Collectors.toList());
+				List<Integer> survivors = survivors(continuing, progress, successiveHalvingDrop);
+
+				for (int i : continuing) {
+					if (survivors.contains(i)) continue;
+
+					Replica replica = assigned.get(i);
+					savedFrames.addAndGet(Math.max(0, maxFrames - replica.getFramesRendered()));
+					replica.abandon();
+
+					results[i] = new AudioHealthScore(progress[i]);
+					dropped[i] = true;
+				}
+
+				active = survivors;
+				frames = 2 * frames;
+			}
+		} finally {
+			// If rendering failed, the genomes that were still active are abandoned
+			assigned.values().forEach(Replica::abandon);
+		}
+	}
+
+	/**
+	 * Create replicas, in addition to those that evaluate genomes concurrently,
+	 * until there are at least the specified number.
+	 */
+	private void addReplicas(int count) {
+		while (replicas.size() < count) {
+			replicas.add(new Replica(templateGenome));
+		}
+
+		// The abort flag of OperationList is shared by every replica,
+		// so it can only be used if there are no other replicas
+		if (replicas.size() > 1) replicas.forEach(r -> r.health.setAbortFlagEnabled(false));
+	}
+
+	/**
+	 * Perform the specified operation for each of the specified genomes, distributing
+	 * them among the replicas, and wait for all of them to be completed.
+	 */
+	private void evaluate(List<Integer> indices, BiConsumer<Replica, Integer> operation) {
+		BlockingQueue<Integer> queue = new LinkedBlockingQueue<>(indices);
+
+		run(replicas.subList(0, replicaCount).stream().map(r -> (Runnable) () -> {
+			Integer index;
+
+			while ((index = queue.poll()) != null) {
+				operation.accept(r, index);
+			}
+		}).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Run the specified operations using the threads of the pool, and wait for all of them to be completed.
+	 */
+	private void run(List<Runnable> operations) {
+		List<Future<?>> futures = operations.stream().map(executor::submit).collect(Collectors.toList());
+
+		try {
+			for (Future<?> f : futures) f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the genomes that survive a rung of successive halving, which are the
+	 * highest scoring {@code 1 - drop} fraction of the specified genomes (rounded up,
+	 * so at least one genome survives), ordered from the highest score to the lowest.
+	 */
+	public static List<Integer> survivors(List<Integer> indices, double scores[], double drop) {
+		if (indices.isEmpty()) return new ArrayList<>();
+
+		int keep = Math.max(1, (int) Math.ceil(indices.size() * (1.0 - drop)));
+		return indices.stream()
+				.sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+				.limit(keep)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns true if the specified genome was dropped by successive halving during the most
+	 * recent call to {@link #computeHealth()}, in which case its score is the progress score
+	 * it had reached rather than the score of a complete evaluation.
+	 */
+	public boolean isDropped(int index) { return dropped != null && dropped[index]; }
+
+	/**
+	 * The number of genomes which were rendered at each rung of successive halving
+	 * during the most recent call to {@link #computeHealth()}.
+	 */
+	public List<Integer> getRungSizes() { return rungSizes == null ? new ArrayList<>() : rungSizes; }
+
+	/**
+	 * The total number of frames rendered during the most recent call to {@link #computeHealth()}.
+	 */
+	public long getRenderedFrames() { return renderedFrames == null ? 0 : renderedFrames.get(); }
+
+	/**
+	 * The number of frames that were not rendered during the most recent call to
+	 * {@link #computeHealth()}, compared with rendering the genomes that were dropped by
+	 * successive halving for the maximum duration. This is an upper bound, as some of the
+	 * dropped genomes might have been stopped by clipping or silence before reaching the
+	 * maximum duration. No frame is rendered more than once, so the rendered and saved
+	 * frames together never exceed the frames of a full evaluation.
+	 */
+	public long getSavedFrames() { return savedFrames == null ? 0 : savedFrames.get(); }
+
+	private void printSavings(long msec, int dropCount) {
+		long rendered = getRenderedFrames();
+		long saved = getSavedFrames();
+		double fraction = rendered + saved == 0 ? 0.0 : saved / (double) (rendered + saved);
+
+		// Estimate the time that would have been spent rendering
+		// the saved frames using the observed rendering rate
+		double savedSec = rendered == 0 ? 0.0 : (msec / 1000.0) * saved / rendered;
+
+		System.out.println("AudioScenePopulationPool: Successive halving dropped " + dropCount + " genomes, saving up to " +
+				saved / OutputLine.sampleRate + " seconds of audio (" + (int) (100 * fraction) + "% of frames, " +
+				"approximately " + (int) savedSec + " seconds of render time)");
+	}
+
+	public void destroy() {
+		if (executor != null) executor.shutdownNow();
+		executor = null;
+	}
+
+	private class Replica {
+		private final AudioScene<?> scene;
+		private final AudioScenePopulation<G> population;
+		private final StableDurationHealthComputation health;
+		private boolean active;
+
+		public Replica(Genome<G> templateGenome) {
+			health = new StableDurationHealthComputation();
+
+			// The abort flag of OperationList is shared by every replica,
+			// so it can only be used if there are no other replicas
+			health.setAbortFlagEnabled(replicaCount == 1);
+			if (outputFile != null) health.setOutputFile(outputFile);
+			if (maxDuration > 0) health.setMaxDuration(maxDuration);
+
+			scene = scenes.get();
+			population = new AudioScenePopulation<>(scene, pop);
+			population.init(templateGenome, health.getMeasures(), health.getOutput());
+		}
+
+		public AudioHealthScore computeHealth(int index) {
+			TemporalCellular cells = population.enableGenome(index);
+
+			try {
+				health.setTarget(cells);
+				health.setProgressMeasured(false);
+				AudioHealthScore score = health.computeHealth();
+				renderedFrames.addAndGet(health.getFramesRendered());
+				return score;
+			} finally {
+				health.reset();
+				population.disableGenome();
+			}
+		}
+
+		/**
+		 * Enable the specified genome and prepare to render it in stages using
+		 * {@link #advance(long)}. The evaluation must be completed by either
+		 * {@link #finish()} or {@link #abandon()}.
+		 */
+		public void begin(int index) {
+			health.setTarget(population.enableGenome(index));
+			health.setProgressMeasured(true);
+
+			try {
+				health.start();
+				active = true;
+			} finally {
+				if (!active) release();
+			}
+		}
+
+		/**
+		 * Continue rendering the genome, from where it was left by the previous call, until
+		 * it has been rendered for the specified total number of frames. This returns false
+		 * if the evaluation has ended, in which case the score is obtained from {@link #finish()}.
+		 */
+		public boolean advance(long frames) {
+			long rendered = health.getFramesRendered();
+
+			try {
+				return health.advance(frames);
+			} finally {
+				renderedFrames.addAndGet(health.getFramesRendered() - rendered);
+			}
+		}
+
+		/**
+		 * The progress score of the genome that is being rendered.
+		 */
+		public double getProgressScore() { return health.getProgressScore(); }
+
+		/**
+		 * The number of frames of the genome that have been rendered.
+		 */
+		public long getFramesRendered() { return health.getFramesRendered(); }
+
+		/**
+		 * Complete the evaluation of the genome, after {@link #advance(long)} has returned false.
+		 */
+		public AudioHealthScore finish() {
+			try {
+				return health.finish();
+			} finally {
+				active = false;
+				release();
+			}
+		}
+
+		/**
+		 * End the evaluation of the genome, if there is one, without writing any output.
+		 */
+		public void abandon() {
+			if (!active) return;
+
+			try {
+				health.abandon();
+			} finally {
+				active = false;
+				release();
+			}
+		}
+
+		private void release() {
+			health.reset();
+			population.disableGenome();
+		}
+	}
+
+	/**
+	 * Reports the health of the enabled genome, computing the health of the entire
+	 * population (using all the replicas) if it is not already known.
+	 */
+	protected class PooledHealthComputation implements AudioHealthComputation<TemporalCellular> {
+		@Override
+		public void setTarget(TemporalCellular target) { }
+
+		@Override
+		public AudioHealthScore computeHealth() {
+			if (currentIndex < 0) {
+				throw new IllegalStateException("No genome is enabled");
+			}
+
+			if (scores == null) AudioScenePopulationPool.this.computeHealth();
+			return scores[currentIndex];
+		}
+
+		@Override
+		public Receptor<PackedCollection<?>> getOutput() {
+			return replicas == null ? null : replicas.get(0).health.getOutput();
+		}
+
+		@Override
+		public List<? extends Receptor<PackedCollection<?>>> getMeasures() {
+			return replicas == null ? null : replicas.get(0).health.getMeasures();
+		}
+
+		public void setOutputFile(Supplier<String> file) {
+			AudioScenePopulationPool.this.setOutputFile(file);
+		}
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.optimize;
+
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.heredity.ArrayListChromosome;
+import org.almostrealism.heredity.ArrayListGene;
+import org.almostrealism.heredity.ArrayListGenome;
+import org.almostrealism.heredity.Chromosome;
+import org.almostrealism.heredity.Factor;
+import org.almostrealism.heredity.Gene;
+import org.almostrealism.heredity.Genome;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BinaryPopulationStore} persists a population of {@link Genome}s as the values of
+ * their factors, rather than as a description of the objects that make up the genome (which
+ * is what {@link java.beans.XMLEncoder} produces). The file begins with a header, containing
+ * a magic number and the format version, followed by one record for each genome. Every
+ * record is prefixed by its length, so genomes can be appended to an existing file and any
+ * genome can be read without decoding the ones before it.
+ * <br>
+ * The values of each genome are stored chromosome by chromosome and gene by gene. When a
+ * genome is read, it is reconstructed as an {@link ArrayListGenome} with the same shape, in
+ * which every factor is a {@link org.almostrealism.heredity.ScaleFactor} with the stored
+ * value. The types of the original chromosomes and genes are not retained, so a decoded
+ * genome is only equivalent to the original where nothing but the values is used, such as
+ * assigning the genome to a scene. {@link AudioSceneGenome}s are stored as their two
+ * component genomes. For this reason, {@link AudioPopulationOptimizer#enableBinaryStore}
+ * is not enabled by default.
+ *
+ * @author  Michael Murray
+ */
+public class BinaryPopulationStore {
+	public static final int MAGIC = 0x41525047; // ARPG
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 8;
+
+	private static final byte NONE = 0;
+	private static final byte VALUES = 1;
+	private static final byte SCENE = 2;
+
+	private final File file;
+	private List<Long> offsets;
+
+	public BinaryPopulationStore(File file) {
+		this.file = file;
+	}
+
+	public File getFile() { return file; }
+
+	/**
+	 * Replace the content of the file with the specified genomes.
+	 */
+	public void write(List<? extends Genome<?>> genomes) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		}
+
+		offsets = new ArrayList<>();
+		append(genomes);
+	}
+
+	/**
+	 * Add the specified genomes to the end of the file, creating it if it does not exist.
+	 */
+	public void append(List<? extends Genome<?>> genomes) throws IOException {
+		if (!file.exists()) {
+			write(genomes);
+			return;
+		}
+
+		List<Long> index = index();
+		long position = file.length();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+			for (Genome<?> genome : genomes) {
+				byte record[] = encode(genome);
+				out.writeInt(record.length);
+				out.write(record);
+
+				index.add(position);
+				position += 4 + record.length;
+			}
+		}
+	}
+
+	/**
+	 * The number of genomes in the file.
+	 */
+	public int size() throws IOException {
+		return file.exists() ? index().size() : 0;
+	}
+
+	/**
+	 * Read the genome at the specified index, without reading any of the others.
+	 */
+	public Genome<PackedCollection<?>> read(int index) throws IOException {
+		long position = index().get(index);
+
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			in.seek(position);
+			byte record[] = new byte[in.readInt()];
+			in.readFully(record);
+			return decode(record);
+		}
+	}
+
+	/**
+	 * Read every genome in the file.
+	 */
+	public List<Genome<PackedCollection<?>>> readAll() throws IOException {
+		List<Genome<PackedCollection<?>>> genomes = new ArrayList<>();
+		List<Long> index = new ArrayList<>();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			readHeader(in);
+
+			long position = HEADER_SIZE;
+			long length = file.length();
+
+			while (position < length) {
+				byte record[] = new byte[in.readInt()];
+				in.readFully(record);
+				genomes.add(decode(record));
+
+				index.add(position);
+				position += 4 + record.length;
+			}
+		}
+
+		offsets = index;
+		return genomes;
+	}
+
+	/**
+	 * Read the genomes from a file produced by {@link AudioPopulationOptimizer#store(List, java.io.OutputStream)}
+	 * and write them to this store.
+	 */
+	public List<Genome<PackedCollection<?>>> importXml(File xml) throws IOException {
+		List<Genome<PackedCollection<?>>> genomes;
+
+		try (FileInputStream in = new FileInputStream(xml)) {
+			genomes = AudioPopulationOptimizer.read(in);
+		}
+
+		write(genomes);
+		return genomes;
+	}
+
+	/**
+	 * Returns true if the specified file begins with the header of a {@link BinaryPopulationStore}.
+	 */
+	public static boolean isBinary(File file) {
+		if (!file.exists() || file.length() < HEADER_SIZE) return false;
+
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private List<Long> index() throws IOException {
+		if (offsets != null) return offsets;
+
+		List<Long> index = new ArrayList<>();
+
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			in.seek(0);
+			if (in.readInt() != MAGIC) throw new IOException(file + " is not a population store");
+			if (in.readInt() > VERSION) throw new IOException(file + " was written by a newer version");
+
+			long position = HEADER_SIZE;
+			long length = in.length();
+
+			while (position < length) {
+				index.add(position);
+				in.seek(position);
+				position += 4 + in.readInt();
+			}
+		}
+
+		offsets = index;
+		return offsets;
+	}
+
+	private void readHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) throw new IOException(file + " is not a population store");
+
+		int version = in.readInt();
+		if (version > VERSION) throw new IOException(file + " was written by a newer version (" + version + ")");
+	}
+
+	protected static byte[] encode(Genome<?> genome) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			encode(genome, out);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	protected static void encode(Genome<?> genome, DataOutputStream out) throws IOException {
+		if (genome == null) {
+			out.writeByte(NONE);
+		} else if (genome instanceof AudioSceneGenome) {
+			out.writeByte(SCENE);
+			encode(((AudioSceneGenome) genome).getGenome(), out);
+			encode(((AudioSceneGenome) genome).getLegacyGenome(), out);
+		} else {
+			out.writeByte(VALUES);
+			out.writeInt(genome.count());
+
+			for (int i = 0; i < genome.count(); i++) {
+				Chromosome<PackedCollection<?>> chromosome = (Chromosome<PackedCollection<?>>) genome.valueAt(i);
+				out.writeInt(chromosome.length());
+
+				for (int j = 0; j < chromosome.length(); j++) {
+					Gene<PackedCollection<?>> gene = chromosome.valueAt(j);
+					out.writeInt(gene.length());
+
+					for (int k = 0; k < gene.length(); k++) {
+						out.writeDouble(DefaultAudioGenome.valueForFactor((Factor<PackedCollection<?>>) gene.valueAt(k)));
+					}
+				}
+			}
+		}
+	}
+
+	protected static Genome<PackedCollection<?>> decode(byte record[]) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+			return decode(in);
+		}
+	}
+
+	protected static Genome<PackedCollection<?>> decode(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+
+		if (type == NONE) {
+			return null;
+		} else if (type == SCENE) {
+			Genome<PackedCollection<?>> genome = decode(in);
+			Genome<PackedCollection<?>> legacyGenome = decode(in);
+			return new AudioSceneGenome(genome, legacyGenome);
+		} else if (type != VALUES) {
+			throw new IOException("Unknown genome type " + type);
+		}
+
+		ArrayListGenome genome = new ArrayListGenome();
+		int chromosomes = in.readInt();
+
+		for (int i = 0; i < chromosomes; i++) {
+			ArrayListChromosome<PackedCollection<?>> chromosome = new ArrayListChromosome<>();
+			int genes = in.readInt();
+
+			for (int j = 0; j < genes; j++) {
+				double values[] = new double[in.readInt()];
+				for (int k = 0; k < values.length; k++) values[k] = in.readDouble();
+				chromosome.add(new ArrayListGene<>(values));
+			}
+
+			genome.add(chromosome);
+		}
+
+		return genome;
+	}
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntToDoubleFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -36,6 +37,7 @@ import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.audio.grains.GrainGenerationSettings;
 import org.almostrealism.audio.grains.GranularSynthesizer;
 import org.almostrealism.audio.health.AudioHealthComputation;
+import org.almostrealism.audio.health.AudioHealthScoreCache;
 import org.almostrealism.audio.health.SilenceDurationHealthComputation;
 import org.almostrealism.audio.health.StableDurationHealthComputation;
 import org.almostrealism.algebra.Pair;
@@ -43,6 +45,7 @@ import org.almostrealism.audio.Cells;
 import org.almostrealism.audio.OutputLine;
 import org.almostrealism.audio.WaveOutput;
 import org.almostrealism.audio.Waves;
+import org.almostrealism.audio.pattern.NoteAudioStore;
 import org.almostrealism.audio.pattern.PatternElementFactory;
 import org.almostrealism.audio.pattern.PatternFactoryChoice;
 import org.almostrealism.audio.pattern.PatternFactoryChoiceList;
@@ -67,12 +70,18 @@ import org.almostrealism.heredity.RandomChromosomeFactory;
 import org.almostrealism.heredity.Genome;
 import org.almostrealism.heredity.GenomeBreeder;
 import org.almostrealism.heredity.ScaleFactor;
+import org.almostrealism.optimize.HealthComputation;
 import org.almostrealism.optimize.PopulationOptimizer;
 
 public class CellularAudioOptimizer extends AudioPopulationOptimizer<Cells> {
 	public static final int verbosity = 0;
 	public static final boolean enableSourcesJson = true;
 	public static final boolean enableStems = false;
+	public static int evaluationReplicas = 1;
+	public static boolean enableHealthCache = false;
+	public static long healthCacheBytes = 8L * 1024 * 1024 * 1024;
+	public static boolean enableNoteStore = true;
+	public static long noteStoreBytes = 4L * 1024 * 1024 * 1024;
 
 	public static String LIBRARY = "Library";
 	public static String STEMS = "Stems";
@@ -92,6 +101,7 @@ public class CellularAudioOptimizer extends AudioPopulationOptimizer<Cells> {
 	}
 
 	private AudioScenePopulation<PackedCollection<?>> population;
+	private AudioScenePopulationPool<PackedCollection<?>> pool;
 
 	public CellularAudioOptimizer(AudioScene<?> scene,
 								  Supplier<GenomeBreeder<PackedCollection<?>>> breeder, Supplier<Supplier<Genome<PackedCollection<?>>>> generator,
@@ -111,6 +121,37 @@ public class CellularAudioOptimizer extends AudioPopulationOptimizer<Cells> {
 				});
 	}
 
+	/**
+	 * Create a {@link CellularAudioOptimizer} which evaluates the population
+	 * concurrently, using the specified number of {@link AudioScene}s.
+	 *
+	 * @see  AudioScenePopulationPool
+	 */
+	public CellularAudioOptimizer(Supplier<AudioScene<?>> scenes, int replicas,
+								  Supplier<GenomeBreeder<PackedCollection<?>>> breeder, Supplier<Supplier<Genome<PackedCollection<?>>>> generator,
+								  int totalCycles) {
+		this(new AudioScenePopulationPool<>(scenes, replicas), breeder, generator, totalCycles);
+	}
+
+	private CellularAudioOptimizer(AudioScenePopulationPool<PackedCollection<?>> pool,
+								   Supplier<GenomeBreeder<PackedCollection<?>>> breeder, Supplier<Supplier<Genome<PackedCollection<?>>>> generator,
+								   int totalCycles) {
+		super(() -> (HealthComputation) pool.getHealthComputation(), null, breeder, generator, "Population.xml", totalCycles);
+		this.pool = pool;
+		setChildrenFunction(
+				children -> {
+					pool.setGenomes(children);
+					if (!pool.isInitialized()) pool.init(children.get(0));
+					return pool;
+				});
+	}
+
+	/**
+	 * Returns the {@link AudioScenePopulationPool} used to evaluate the population,
+	 * or null if the population is evaluated using a single {@link AudioScene}.
+	 */
+	public AudioScenePopulationPool<PackedCollection<?>> getPool() { return pool; }
+
 	public static Supplier<Supplier<Genome<PackedCollection<?>>>> generator(AudioScene<?> scene) {
 		return generator(scene, new GeneratorConfiguration(scene.getSourceCount()));
 	}
@@ -296,6 +337,16 @@ public class CellularAudioOptimizer extends AudioPopulationOptimizer<Cells> {
 		return new CellularAudioOptimizer(scene, scene::getBreeder, generator, cycles);
 	}
 
+	public static CellularAudioOptimizer build(Supplier<AudioScene<?>> scenes, int replicas, int cycles) {
+		AudioScene<?> scene = scenes.get();
+
+		// The scene used for the breeder and generator is also used by the first replica
+		AtomicBoolean first = new AtomicBoolean(true);
+		Supplier<AudioScene<?>> replicaScenes = () -> first.getAndSet(false) ? scene : scenes.get();
+
+		return new CellularAudioOptimizer(replicaScenes, replicas, scene::getBreeder, generator(scene), cycles);
+	}
+
 	/**
 	 * Build a {@link CellularAudioOptimizer} and initialize and run it.
 	 *
@@ -313,6 +364,7 @@ public class CellularAudioOptimizer extends AudioPopulationOptimizer<Cells> {
 		AudioScene.enableMasterFilterDown = true;
 		AudioScene.disableClean = false;
 		AudioScene.enableSourcesOnly = false;
+		AudioScene.enableIncrementalRender = true;
 		SilenceDurationHealthComputation.enableSilenceCheck = false;
 		AudioPopulationOptimizer.enableIsolatedContext = false;
 
@@ -335,8 +387,28 @@ public class CellularAudioOptimizer extends AudioPopulationOptimizer<Cells> {
 
 		WaveData.setCollectionHeap(() -> new PackedCollectionHeap(20000 * OutputLine.sampleRate), PackedCollectionHeap::destroy);
 
-		AudioScene<?> scene = createScene();
-		CellularAudioOptimizer opt = build(scene, PopulationOptimizer.enableBreeding ? 25 : 1);
+		if (enableNoteStore) {
+			PatternNote.setStore(new NoteAudioStore(new File("notes/cache"), noteStoreBytes));
+		}
+
+		CellularAudioOptimizer opt;
+
+		if (evaluationReplicas > 1 || enableHealthCache || AudioScenePopulationPool.enableSuccessiveHalving) {
+			opt = build(() -> {
+				try {
+					return createScene();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}, evaluationReplicas, PopulationOptimizer.enableBreeding ? 25 : 1);
+
+			if (enableHealthCache) {
+				opt.getPool().setHealthCache(new AudioHealthScoreCache(new File("health/cache"), healthCacheBytes));
+			}
+		} else {
+			opt = build(createScene(), PopulationOptimizer.enableBreeding ? 25 : 1);
+		}
+
 		opt.init();
 		opt.run();
 	}
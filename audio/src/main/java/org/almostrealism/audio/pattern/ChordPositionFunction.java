@@ -42,6 +42,13 @@ public class ChordPositionFunction {
 		this.scalePositions = scalePositions;
 	}
 
+	/**
+	 * A description of the functions that determine the result of this function.
+	 */
+	public String signature() {
+		return scalePositions.stream().map(ParameterizedPositionFunction::signature).collect(Collectors.joining("/"));
+	}
+
 	public double apply(ParameterSet params, double position, double scale, int depth) {
 		return scalePositions.get(depth).applyPositive(params, position, scale);
 	}
@@ -35,6 +35,12 @@ import java.util.stream.IntStream;
 public class ChordProgressionManager {
 	public static final int MAX_SIZE = 64;
 
+	/**
+	 * The number of entries in the lookup table for each unit of duration,
+	 * which is 1/64 of a beat for a measure of 4 beats.
+	 */
+	public static int lookupResolution = 256;
+
 	private ConfigurableGenome genome;
 	private SimpleChromosome chromosome;
 
@@ -46,6 +52,7 @@ public class ChordProgressionManager {
 	private List<ChordPositionFunction> chordSelection;
 
 	private List<Region> regions;
+	private Scale<?> lookup[];
 
 	public ChordProgressionManager() {
 		genome = new ConfigurableGenome();
@@ -120,10 +127,54 @@ public class ChordProgressionManager {
 			regions.add(region);
 			length += regionLength;
 		}
+
+		lookup = createLookup();
+	}
+
+	/**
+	 * Create a table of the {@link Scale} for every interval of 1 / {@link #lookupResolution}
+	 * over the duration of the progression. Intervals which are not entirely within one
+	 * {@link Region} are left empty, so that {@link #forPosition(double)} will search the
+	 * regions for positions within them.
+	 */
+	protected Scale<?>[] createLookup() {
+		Scale<?> table[] = new Scale[(int) Math.ceil(duration * lookupResolution)];
+
+		for (int i = 0; i < table.length; i++) {
+			double start = i / (double) lookupResolution;
+			double end = Math.min(duration, (i + 1) / (double) lookupResolution);
+
+			for (Region region : regions) {
+				if (region.contains(start)) {
+					if (end <= region.start + region.length) table[i] = region.getScale();
+					break;
+				}
+			}
+		}
+
+		return table;
 	}
 
 	public ConfigurableGenome getGenome() { return genome; }
 
+	/**
+	 * A description of everything that determines the result of {@link #forPosition(double)}.
+	 */
+	public String signature() {
+		ParameterSet params = getParams();
+
+		StringBuilder signature = new StringBuilder();
+		getKey().forEach(k -> signature.append(k.position()).append(","));
+		signature.append(":").append(chordDepth).append(":");
+		signature.append(size).append(":").append(duration).append(":");
+		regionLengthSelection.forEach(f -> signature.append(f.signature()).append("|"));
+		signature.append(":");
+		chordSelection.forEach(f -> signature.append(f.signature()).append("|"));
+		signature.append(":");
+		signature.append(params.getX()).append(",").append(params.getY()).append(",").append(params.getZ());
+		return signature.toString();
+	}
+
 	public Settings getSettings() {
 		Settings settings = new Settings();
 
@@ -172,7 +223,7 @@ public class ChordProgressionManager {
 	}
 
 	public double getDuration() { return duration; }
-	public void setDuration(double duration) { this.duration = duration; }
+	public void setDuration(double duration) { this.duration = duration; this.lookup = null; }
 
 	public List<ParameterFunction> getRegionLengthSelection() {
 		return regionLengthSelection;
@@ -191,7 +242,13 @@ public class ChordProgressionManager {
 	}
 
 	public Scale<?> forPosition(double position) {
-		while (position >= duration) position -= duration;
+		if (position >= duration) position = position % duration;
+
+		if (lookup != null && position >= 0) {
+			int index = (int) (position * lookupResolution);
+			if (index < lookup.length && lookup[index] != null) return lookup[index];
+		}
+
 		for (Region region : regions) {
 			if (region.contains(position)) {
 				return region.getScale();
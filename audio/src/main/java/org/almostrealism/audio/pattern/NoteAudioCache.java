@@ -0,0 +1,211 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.pattern;
+
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.audio.tone.KeyPosition;
+import org.almostrealism.audio.tone.KeyboardTuning;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.hardware.Hardware;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A {@link NoteAudioCache} retains the pitch shifted audio produced by {@link PatternNote}s,
+ * so that notes which share a source and root do not each keep a copy of the same audio.
+ * Entries are identified by the source of the note, its root, the target key and the
+ * {@link KeyboardTuning}, and the least recently used entries are evicted when the total
+ * size of the cached audio exceeds the budget.
+ * <br>
+ * Evicted audio may still be in use by a sum that is in progress, so any code which uses audio
+ * from the cache should do so between calls to {@link #begin()} and {@link #end()}. Evicted
+ * audio is only returned to the {@link WaveData} collection heap when there are no such users.
+ *
+ * @author  Michael Murray
+ */
+public class NoteAudioCache {
+	public static long defaultBudget = 1024L * 1024 * 1024;
+
+	private static NoteAudioCache global;
+
+	private final long budget;
+	private long size;
+	private int users;
+
+	private final LinkedHashMap<Key, PackedCollection> entries;
+	private final List<PackedCollection> evicted;
+	private final AtomicLong hits, misses, evictions;
+
+	public NoteAudioCache(long budget) {
+		this.budget = budget;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.evicted = new ArrayList<>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.evictions = new AtomicLong();
+	}
+
+	/**
+	 * The maximum number of bytes of audio retained by the cache.
+	 */
+	public long getBudget() { return budget; }
+
+	/**
+	 * The number of bytes of audio currently retained by the cache.
+	 */
+	public synchronized long getSize() { return size; }
+
+	public synchronized int getEntryCount() { return entries.size(); }
+
+	public long getHitCount() { return hits.get(); }
+
+	public long getMissCount() { return misses.get(); }
+
+	public long getEvictionCount() { return evictions.get(); }
+
+	/**
+	 * Returns the cached audio for the specified note, computing and caching it if it is not present.
+	 * The source is either the name of the file the note was loaded from, or the audio of the
+	 * note if it was not loaded from a file.
+	 */
+	public PackedCollection get(Object source, KeyPosition<?> root, KeyPosition<?> target,
+								KeyboardTuning tuning, Supplier<PackedCollection> compute) {
+		Key key = new Key(source, root, target, tuning);
+
+		synchronized (this) {
+			PackedCollection audio = entries.get(key);
+
+			if (audio != null) {
+				hits.incrementAndGet();
+				return audio;
+			}
+		}
+
+		misses.incrementAndGet();
+		PackedCollection audio = compute.get();
+
+		synchronized (this) {
+			// Another thread may have computed the same audio in the meantime
+			PackedCollection existing = entries.get(key);
+
+			if (existing != null) {
+				evicted.add(audio);
+				return existing;
+			}
+
+			entries.put(key, audio);
+			size += bytes(audio);
+			evict(key);
+		}
+
+		return audio;
+	}
+
+	/**
+	 * Remove every entry, without returning the audio to the heap.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		evicted.clear();
+		size = 0;
+	}
+
+	/**
+	 * Indicate that audio obtained from the cache is about to be used.
+	 */
+	public synchronized void begin() { users++; }
+
+	/**
+	 * Indicate that audio obtained from the cache is no longer in use, returning the
+	 * audio for every evicted entry to the {@link WaveData} collection heap if there
+	 * are no other users.
+	 */
+	public void end() {
+		List<PackedCollection> release;
+
+		synchronized (this) {
+			if (users > 0) users--;
+			if (users > 0 || evicted.isEmpty()) return;
+
+			release = new ArrayList<>(evicted);
+			evicted.clear();
+		}
+
+		release.forEach(WaveData::releaseCollection);
+	}
+
+	private void evict(Key retain) {
+		Iterator<Map.Entry<Key, PackedCollection>> itr = entries.entrySet().iterator();
+
+		while (size > budget && itr.hasNext()) {
+			Map.Entry<Key, PackedCollection> entry = itr.next();
+			if (entry.getKey().equals(retain)) continue;
+
+			size -= bytes(entry.getValue());
+			evicted.add(entry.getValue());
+			evictions.incrementAndGet();
+			itr.remove();
+		}
+	}
+
+	public String describe() {
+		return "NoteAudioCache: " + getEntryCount() + " entries (" + getSize() / (1024 * 1024) + "mb), " +
+				getHitCount() + " hits, " + getMissCount() + " misses, " + getEvictionCount() + " evictions";
+	}
+
+	private static long bytes(PackedCollection audio) {
+		return audio.getMemLength() * (long) Hardware.getLocalHardware().getNumberSize();
+	}
+
+	public static synchronized NoteAudioCache getGlobal() {
+		if (global == null) global = new NoteAudioCache(defaultBudget);
+		return global;
+	}
+
+	private static class Key {
+		private final Object source;
+		private final KeyPosition<?> root, target;
+		private final KeyboardTuning tuning;
+
+		Key(Object source, KeyPosition<?> root, KeyPosition<?> target, KeyboardTuning tuning) {
+			this.source = source;
+			this.root = root;
+			this.target = target;
+			this.tuning = tuning;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return Objects.equals(source, k.source) && Objects.equals(root, k.root)
+					&& Objects.equals(target, k.target) && tuning == k.tuning;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(source, root, target, System.identityHashCode(tuning));
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.pattern;
+
+import org.almostrealism.audio.OutputLine;
+import org.almostrealism.audio.data.FileWaveDataProvider;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.collect.PackedCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A {@link NoteAudioStore} keeps pitch shifted note audio in a directory, so that it
+ * does not need to be computed again when the process is restarted. Entries are identified
+ * by a hash of the content of the source file, the ratio between the frequency of the target
+ * and the root, the interpolation mode, the output sample rate and whether source files are
+ * resampled to the output sample rate when they are loaded. An entry is never used for a
+ * source file that has been modified since it was stored, or for audio that was loaded at
+ * a different sample rate.
+ * <br>
+ * The least recently used entries are removed when the total size of the entries exceeds
+ * the budget. Entries that are already in the directory when the store is created are
+ * treated as having been used in the order they were last modified.
+ * <br>
+ * Each entry is a header, containing a magic number and the number of samples, followed by
+ * the samples as little endian doubles. Entries are read using a memory mapping of the file.
+ *
+ * @author  Michael Murray
+ */
+public class NoteAudioStore {
+	public static final int MAGIC = 0x41524e41; // ARNA
+	public static boolean enableVerbose = false;
+
+	private static final int HEADER_SIZE = 8;
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final File directory;
+	private final long budget;
+	private final Map<String, SourceHash> sourceHashes;
+	private final LinkedHashMap<String, Long> entries;
+	private long size;
+	private final AtomicLong hits, misses;
+
+	/**
+	 * @param budget  The maximum number of bytes retained in the directory.
+	 */
+	public NoteAudioStore(File directory, long budget) {
+		this.directory = directory;
+		this.budget = budget;
+		this.sourceHashes = new ConcurrentHashMap<>();
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		load();
+	}
+
+	public File getDirectory() { return directory; }
+
+	/**
+	 * The maximum number of bytes retained in the directory.
+	 */
+	public long getBudget() { return budget; }
+
+	/**
+	 * The number of bytes currently retained in the directory.
+	 */
+	public synchronized long getSize() { return size; }
+
+	public synchronized int size() { return entries.size(); }
+
+	public long getHitCount() { return hits.get(); }
+
+	public long getMissCount() { return misses.get(); }
+
+	/**
+	 * Returns the stored audio for the specified source file, ratio and interpolation mode,
+	 * computing and storing it if it is not present. If the source file cannot be read, the
+	 * audio is computed without being stored.
+	 */
+	public PackedCollection get(String source, double ratio, String mode, Supplier<PackedCollection> compute) {
+		String key;
+
+		try {
+			key = key(source, ratio, mode);
+		} catch (IOException e) {
+			System.out.println("NoteAudioStore: Unable to hash " + source + " (" + e.getMessage() + ")");
+			return compute.get();
+		}
+
+		File file = new File(directory, key + ".note");
+
+		if (file.exists()) {
+			try {
+				PackedCollection audio = read(file);
+				hits.incrementAndGet();
+				track(key, file.length());
+				return audio;
+			} catch (IOException e) {
+				System.out.println("NoteAudioStore: Unable to read " + file.getName() + " (" + e.getMessage() + ")");
+			}
+		}
+
+		misses.incrementAndGet();
+		PackedCollection audio = compute.get();
+
+		try {
+			write(file, audio);
+			track(key, file.length());
+			evict(key);
+		} catch (IOException e) {
+			System.out.println("NoteAudioStore: Unable to write " + file.getName() + " (" + e.getMessage() + ")");
+		}
+
+		return audio;
+	}
+
+	public void printStatistics() {
+		System.out.println("NoteAudioStore: " + size() + " entries (" + getSize() / (1024 * 1024) + "mb), " +
+				getHitCount() + " hits, " + getMissCount() + " misses");
+	}
+
+	protected String key(String source, double ratio, String mode) throws IOException {
+		return hash(sourceHash(source) + ":" + Long.toHexString(Double.doubleToLongBits(ratio)) + ":" + mode +
+				":" + OutputLine.sampleRate + ":" + FileWaveDataProvider.enableResampling);
+	}
+
+	/**
+	 * Record the size of the specified entry, and that it has just been used.
+	 */
+	private synchronized void track(String key, long bytes) {
+		Long previous = entries.put(key, bytes);
+		size += bytes - (previous == null ? 0 : previous);
+	}
+
+	/**
+	 * Remove the least recently used entries, other than the specified entry,
+	 * until the size of the store is within the budget.
+	 */
+	private synchronized void evict(String retain) {
+		Iterator<Map.Entry<String, Long>> itr = entries.entrySet().iterator();
+
+		while (size > budget && itr.hasNext()) {
+			Map.Entry<String, Long> entry = itr.next();
+			if (entry.getKey().equals(retain)) continue;
+
+			itr.remove();
+			size -= entry.getValue();
+
+			// A note which another thread is reading remains readable if the file
+			// has already been opened, and is otherwise computed again
+			new File(directory, entry.getKey() + ".note").delete();
+
+			if (enableVerbose) System.out.println("NoteAudioStore: Evicted " + entry.getKey());
+		}
+	}
+
+	private void load() {
+		if (!directory.exists()) directory.mkdirs();
+
+		File files[] = directory.listFiles((dir, name) -> name.endsWith(".note"));
+		if (files == null) return;
+
+		// The oldest entries are loaded first, so they will be evicted first
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+		for (File f : files) {
+			track(f.getName().substring(0, f.getName().length() - 5), f.length());
+		}
+
+		evict(null);
+
+		if (enableVerbose) System.out.println("NoteAudioStore: Found " + entries.size() + " entries");
+	}
+
+	/**
+	 * Returns the hash of the content of the specified file, which is only computed
+	 * again if the length or modification time of the file has changed.
+	 */
+	protected String sourceHash(String source) throws IOException {
+		File f = new File(source);
+		long length = f.length();
+		long modified = f.lastModified();
+
+		SourceHash h = sourceHashes.get(source);
+		if (h != null && h.length == length && h.modified == modified) return h.hash;
+
+		try (InputStream in = Files.newInputStream(f.toPath())) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			byte buf[] = new byte[CHUNK_SIZE];
+			int read;
+			while ((read = in.read(buf)) > 0) digest.update(buf, 0, read);
+
+			h = new SourceHash(hex(digest.digest()), length, modified);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		sourceHashes.put(source, h);
+		return h.hash;
+	}
+
+	protected PackedCollection read(File file) throws IOException {
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer data = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+			data.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (data.getInt() != MAGIC) throw new IOException(file + " is not a note");
+
+			int count = data.getInt();
+			if (HEADER_SIZE + 8L * count != fc.size()) throw new IOException(file + " is incomplete");
+
+			PackedCollection audio = WaveData.allocateCollection(count);
+			DoubleBuffer values = data.asDoubleBuffer();
+
+			double chunk[] = new double[Math.min(count, CHUNK_SIZE)];
+
+			for (int start = 0; start < count; start += chunk.length) {
+				int length = Math.min(chunk.length, count - start);
+				if (length < chunk.length) chunk = new double[length];
+
+				values.get(chunk);
+				audio.setMem(start, chunk);
+			}
+
+			if (enableVerbose) System.out.println("NoteAudioStore: Loaded " + file.getName());
+			return audio;
+		}
+	}
+
+	protected void write(File file, PackedCollection audio) throws IOException {
+		int count = audio.getMemLength();
+		File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+
+		try (FileChannel fc = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC);
+			header.putInt(count);
+			header.flip();
+			while (header.hasRemaining()) fc.write(header);
+
+			ByteBuffer buf = ByteBuffer.allocate(8 * Math.min(Math.max(count, 1), CHUNK_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+
+			for (int start = 0; start < count; start += CHUNK_SIZE) {
+				int length = Math.min(CHUNK_SIZE, count - start);
+
+				buf.clear();
+				buf.asDoubleBuffer().put(audio.toArray(start, length));
+				buf.limit(8 * length);
+				while (buf.hasRemaining()) fc.write(buf);
+			}
+		}
+
+		// Another process may be storing the same note, but the content would be the same
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static String hash(String content) {
+		try {
+			return hex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String hex(byte hash[]) {
+		StringBuilder buf = new StringBuilder();
+		for (byte b : hash) buf.append(String.format("%02x", b));
+		return buf.toString();
+	}
+
+	private static class SourceHash {
+		private final String hash;
+		private final long length, modified;
+
+		SourceHash(String hash, long length, long modified) {
+			this.hash = hash;
+			this.length = length;
+			this.modified = modified;
+		}
+	}
+}
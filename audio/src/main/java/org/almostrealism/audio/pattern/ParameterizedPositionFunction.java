@@ -67,6 +67,14 @@ public class ParameterizedPositionFunction {
 		this.rateOffset = rateOffset;
 	}
 
+	/**
+	 * A description of the functions that determine the result of this function.
+	 */
+	public String signature() {
+		return regularity.signature() + ";" + regularityOffset.signature() + ";" +
+				rate.signature() + ";" + rateOffset.signature();
+	}
+
 	public double apply(ParameterSet params, double position, double scale) {
 		position = regularize(params, position, scale);
 		double r = 2 + rate.apply(params);
@@ -123,6 +123,20 @@ public class PatternElement implements CodeFeatures {
 																		  DoubleToIntFunction frameForPosition,
 																		  DoubleFunction<Scale<?>> scaleForPosition,
 																		  DoubleUnaryOperator nextNotePosition) {
+		return getNoteDestinations(melodic, offset, frameForPosition, scaleForPosition, nextNotePosition, 0);
+	}
+
+	/**
+	 * Returns the notes of this element, positioned at the frame for their position minus
+	 * the specified origin frame. This allows the notes to be rendered into a buffer which
+	 * begins at the origin, while still placing every note at exactly the frame it would
+	 * have relative to the beginning of the destination.
+	 */
+	public List<ProducerWithOffset<PackedCollection>> getNoteDestinations(boolean melodic, double offset,
+																		  DoubleToIntFunction frameForPosition,
+																		  DoubleFunction<Scale<?>> scaleForPosition,
+																		  DoubleUnaryOperator nextNotePosition,
+																		  int originFrame) {
 		List<ProducerWithOffset<PackedCollection>> destinations = new ArrayList<>();
 
 		/*
@@ -146,6 +160,51 @@ public class PatternElement implements CodeFeatures {
 		}
 		 */
 
+		forEachNote(offset, scaleForPosition, (target, relativePosition, actualPosition) -> {
+			Producer<PackedCollection> note = getNoteAudio(melodic, target, relativePosition,
+												nextNotePosition.applyAsDouble(relativePosition),
+												frameForPosition);
+			destinations.add(new ProducerWithOffset<>(note, frameForPosition.applyAsInt(actualPosition) - originFrame));
+		});
+
+		return destinations;
+	}
+
+	/**
+	 * Returns the frame at which the last of the notes provided by
+	 * {@link #getNoteDestinations(boolean, double, DoubleToIntFunction, DoubleFunction, DoubleUnaryOperator)}
+	 * ends, without evaluating the audio for any of them.
+	 */
+	public int getNoteEndFrame(boolean melodic, double offset,
+							   DoubleToIntFunction frameForPosition,
+							   DoubleFunction<Scale<?>> scaleForPosition,
+							   DoubleUnaryOperator nextNotePosition) {
+		return getNoteEndFrame(melodic, offset, frameForPosition, scaleForPosition, nextNotePosition, 0);
+	}
+
+	/**
+	 * Returns the frame at which the last of the notes provided by
+	 * {@link #getNoteDestinations(boolean, double, DoubleToIntFunction, DoubleFunction, DoubleUnaryOperator, int)}
+	 * ends, relative to the specified origin frame.
+	 */
+	public int getNoteEndFrame(boolean melodic, double offset,
+							   DoubleToIntFunction frameForPosition,
+							   DoubleFunction<Scale<?>> scaleForPosition,
+							   DoubleUnaryOperator nextNotePosition,
+							   int originFrame) {
+		int end[] = new int[1];
+
+		forEachNote(offset, scaleForPosition, (target, relativePosition, actualPosition) -> {
+			int length = getNoteFrames(melodic, target, relativePosition,
+										nextNotePosition.applyAsDouble(relativePosition),
+										frameForPosition);
+			end[0] = Math.max(end[0], frameForPosition.applyAsInt(actualPosition) - originFrame + length);
+		});
+
+		return end[0];
+	}
+
+	private void forEachNote(double offset, DoubleFunction<Scale<?>> scaleForPosition, NoteTarget consumer) {
 		for (int i = 0; i < getRepeatCount(); i++) {
 			double relativePosition = getPosition() + i * getRepeatDuration();
 			double actualPosition = offset + relativePosition;
@@ -156,17 +215,10 @@ public class PatternElement implements CodeFeatures {
 			p: for (double p : getScalePositions()) {
 				if (keys.isEmpty()) break p;
 				int keyIndex = (int) (p * keys.size());
-
-				Producer<PackedCollection> note = getNoteAudio(melodic, keys.get(keyIndex), relativePosition,
-													nextNotePosition.applyAsDouble(relativePosition),
-													frameForPosition);
-				destinations.add(new ProducerWithOffset<>(note, frameForPosition.applyAsInt(actualPosition)));
-
+				consumer.accept(keys.get(keyIndex), relativePosition, actualPosition);
 				keys.remove(keyIndex);
 			}
 		}
-
-		return destinations;
 	}
 
 	public Producer<PackedCollection> getNoteAudio(boolean melodic, KeyPosition<?> target,
@@ -180,6 +232,20 @@ public class PatternElement implements CodeFeatures {
 		}
 	}
 
+	/**
+	 * Returns the number of frames in the audio provided by
+	 * {@link #getNoteAudio(boolean, KeyPosition, double, double, DoubleToIntFunction)}.
+	 */
+	public int getNoteFrames(boolean melodic, KeyPosition<?> target,
+							 double position, double nextNotePosition,
+							 DoubleToIntFunction frameForPosition) {
+		if (getDurationStrategy() == NoteDurationStrategy.NONE) {
+			return getNote().getFrameCount(melodic ? target : getNote().getRoot());
+		} else {
+			return frameForPosition.applyAsInt(getNoteDuration(position, nextNotePosition));
+		}
+	}
+
 	public boolean isPresent(double start, double end) {
 		for (int i = 0; i < repeatCount; i++) {
 			double pos = getPosition() + i * repeatDuration;
@@ -188,4 +254,8 @@ public class PatternElement implements CodeFeatures {
 
 		return false;
 	}
+
+	private interface NoteTarget {
+		void accept(KeyPosition<?> target, double relativePosition, double actualPosition);
+	}
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.pattern;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable index of {@link PatternElement}s, sorted by position, which answers range
+ * queries and next position lookups in logarithmic time. Elements with the same position
+ * keep the order in which they were provided.
+ * <br>
+ * The index assumes that the repeat duration of every element is not negative, so that
+ * the position of each element is the earliest of its positions.
+ *
+ * @author  Michael Murray
+ */
+public class PatternElementIndex {
+	private final List<PatternElement> elements;
+	private final double positions[];
+
+	public PatternElementIndex(Collection<PatternElement> elements) {
+		List<PatternElement> sorted = new ArrayList<>(elements);
+		sorted.sort(Comparator.comparingDouble(PatternElement::getPosition));
+
+		this.elements = Collections.unmodifiableList(sorted);
+		this.positions = sorted.stream().mapToDouble(PatternElement::getPosition).toArray();
+	}
+
+	public int size() { return elements.size(); }
+
+	public List<PatternElement> getElements() { return elements; }
+
+	/**
+	 * Returns the elements with a position that is at least start and less than end.
+	 */
+	public List<PatternElement> getElements(double start, double end) {
+		int from = lowerBound(start);
+		int to = lowerBound(end);
+		if (to <= from) return Collections.emptyList();
+		return elements.subList(from, to);
+	}
+
+	/**
+	 * Returns the earliest position after the specified position, among all the positions of the
+	 * elements that are located between the specified position and end, or end if there is none.
+	 * This is equivalent to filtering the positions of {@link #getElements(double, double)}.
+	 */
+	public double nextPosition(double position, double end) {
+		double next = end;
+		boolean found = false;
+
+		// Elements at exactly this position can only contribute their repetitions
+		int i = lowerBound(position);
+		for (; i < positions.length && positions[i] == position && position < end; i++) {
+			for (double p : elements.get(i).getPositions()) {
+				if (p > position && (!found || p < next)) {
+					next = p;
+					found = true;
+				}
+			}
+		}
+
+		// Every other element begins after the position, so the first one begins soonest
+		if (i < positions.length && positions[i] < end && (!found || positions[i] < next)) {
+			next = positions[i];
+		}
+
+		return next;
+	}
+
+	/**
+	 * Returns the index of the first element with a position that is not less than the specified position.
+	 */
+	private int lowerBound(double position) {
+		int low = 0;
+		int high = positions.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (positions[mid] < position) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+}
@@ -21,6 +21,8 @@ import org.almostrealism.audio.data.ParameterFunction;
 import org.almostrealism.audio.data.ParameterSet;
 import org.almostrealism.audio.tone.Scale;
 import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.collect.ProducerWithOffset;
+import org.almostrealism.collect.TraversalPolicy;
 import org.almostrealism.collect.computations.RootDelegateSegmentsAdd;
 import org.almostrealism.hardware.KernelizedEvaluable;
 import org.almostrealism.hardware.OperationList;
@@ -31,7 +33,9 @@ import org.almostrealism.heredity.SimpleGene;
 import org.almostrealism.io.SystemUtils;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.DoubleFunction;
 import java.util.function.DoubleToIntFunction;
 import java.util.function.Supplier;
@@ -42,6 +46,7 @@ public class PatternLayerManager implements CodeFeatures {
 	public static final int MAX_NOTES = 2048;
 
 	public static boolean enableWarnings = SystemUtils.isEnabled("AR_PATTERN_WARNINGS").orElse(true);
+	public static boolean enableCycleTiling = true;
 
 	private int channel;
 	private double duration;
@@ -58,6 +63,7 @@ public class PatternLayerManager implements CodeFeatures {
 
 	private List<PatternLayer> roots;
 	private List<ParameterSet> layerParams;
+	private PatternElementIndex index;
 
 	private PackedCollection volume;
 	private PackedCollection destination;
@@ -65,6 +71,10 @@ public class PatternLayerManager implements CodeFeatures {
 	private Runnable runSum;
 	private Runnable adjustVolume;
 
+	private PackedCollection cycle;
+	private RootDelegateSegmentsAdd cycleSum;
+	private Runnable runCycleSum;
+
 	public PatternLayerManager(List<PatternFactoryChoice> choices, SimpleChromosome chromosome, int channel, double measures,
 							   boolean melodic) {
 		this(PatternFactoryChoice.choices(choices, false), PatternFactoryChoice.choices(choices, true),
@@ -158,10 +168,35 @@ public class PatternLayerManager implements CodeFeatures {
 	}
 
 	public List<PatternElement> getAllElements(double start, double end) {
-		return roots.stream()
-				.map(l -> l.getAllElements(start, end))
-				.flatMap(List::stream)
-				.collect(Collectors.toList());
+		return getIndex().getElements(start, end);
+	}
+
+	/**
+	 * Returns the {@link PatternElementIndex} for every layer, which is
+	 * created the first time it is needed after the layers are changed.
+	 */
+	public PatternElementIndex getIndex() {
+		if (index == null) {
+			index = new PatternElementIndex(roots.stream()
+					.map(l -> l.getAllElements(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY))
+					.flatMap(List::stream)
+					.collect(Collectors.toList()));
+		}
+
+		return index;
+	}
+
+	/**
+	 * A description of everything that determines the notes produced by {@link #sum(DoubleToIntFunction, int, DoubleFunction)},
+	 * other than the choices, the tuning and the chord progression.
+	 */
+	public String signature() {
+		StringBuilder signature = new StringBuilder();
+		signature.append(channel).append(":").append(duration).append(":").append(chordDepth).append(":");
+		signature.append(melodic).append(":").append(seedBias).append(":").append(applyNoteDuration).append(":");
+		signature.append(factorySelection.signature());
+		layerParams.forEach(p -> signature.append(":").append(p.getX()).append(",").append(p.getY()).append(",").append(p.getZ()));
+		return signature.toString();
 	}
 
 	public Settings getSettings() {
@@ -233,6 +268,8 @@ public class PatternLayerManager implements CodeFeatures {
 	}
 
 	protected void layer(ParameterSet params) {
+		index = null;
+
 		if (rootCount() <= 0) {
 			PatternLayerSeeds seeds = getSeeds(params);
 			if (seeds != null) {
@@ -267,6 +304,7 @@ public class PatternLayerManager implements CodeFeatures {
 		if (removeGene) chromosome.removeGene(chromosome.length() - 1);
 		layerParams.remove(layerParams.size() - 1);
 		decrement();
+		index = null;
 
 		if (depth() <= 0) return;
 		if (depth() <= 1) {
@@ -312,7 +350,22 @@ public class PatternLayerManager implements CodeFeatures {
 		return options.get((int) (options.size() * c));
 	}
 
+	/**
+	 * Add the notes of this pattern for the specified number of measures to the destination.
+	 * The audio for the notes is obtained from the {@link NoteAudioCache}, so it is only used
+	 * between calls to {@link NoteAudioCache#begin()} and {@link NoteAudioCache#end()}.
+	 */
 	public void sum(DoubleToIntFunction offsetForPosition, int measures, DoubleFunction<Scale<?>> scaleForPosition) {
+		NoteAudioCache.getGlobal().begin();
+
+		try {
+			render(offsetForPosition, measures, scaleForPosition);
+		} finally {
+			NoteAudioCache.getGlobal().end();
+		}
+	}
+
+	private void render(DoubleToIntFunction offsetForPosition, int measures, DoubleFunction<Scale<?>> scaleForPosition) {
 		List<PatternElement> elements = getAllElements(0.0, duration);
 		if (elements.isEmpty()) {
 			if (enableWarnings)
@@ -329,38 +382,138 @@ public class PatternLayerManager implements CodeFeatures {
 			System.out.println("PatternLayerManager: Pattern duration does not divide measures; there will be gaps");
 		}
 
+		if (enableCycleTiling && count > 1) {
+			Map<String, List<Double>> cycles = new LinkedHashMap<>();
+			IntStream.range(0, count).mapToDouble(i -> i * duration).forEach(offset ->
+					cycles.computeIfAbsent(cycleKey(elements, offset, offsetForPosition, scaleForPosition), k -> new ArrayList<>()).add(offset));
+
+			if (cycles.size() < count) {
+				cycles.values().forEach(offsets -> tile(elements, offsets, offsetForPosition, scaleForPosition));
+				adjustVolume.run();
+				return;
+			}
+		}
+
 		IntStream.range(0, count).forEach(i -> {
 			double offset = i * duration;
 
-			sum.getInput().clear();
-			elements.stream()
+			List<ProducerWithOffset<PackedCollection>> notes = elements.stream()
 					.map(e -> e.getNoteDestinations(melodic, offset, offsetForPosition, scaleForPosition, this::nextNotePosition))
 					.flatMap(List::stream)
-					.forEach(sum.getInput()::add);
-
-			if (sum.getInput().size() > sum.getMaxInputs()) {
-				System.out.println("PatternLayerManager: Too many inputs (" + sum.getInput().size() + ") for sum on channel " + getChannel());
-				return;
-			}
+					.collect(Collectors.toList());
 
-			if (sum.getInput().size() <= 0) {
+			if (notes.isEmpty()) {
 				System.out.println("PatternLayerManager: No inputs for sum");
 				return;
 			}
 
-			runSum.run();
+			runBatches(sum, runSum, notes);
 		});
 
 		adjustVolume.run();
 	}
 
-	public double nextNotePosition(double position) {
-		return getAllElements(position, duration).stream()
-				.map(PatternElement::getPositions)
+	/**
+	 * Render the notes of the cycle which begins at the first of the specified offsets once,
+	 * and then add the result to the destination at every one of the offsets. The cycles at
+	 * the offsets must all have the same {@link #cycleKey(List, double, DoubleToIntFunction, DoubleFunction)}.
+	 * The notes of the first cycle are placed relative to the frame of its offset, and the
+	 * key ensures that the notes of every other cycle are the same number of frames from the
+	 * frame of their offset, so every note is at the frame it would have if it were rendered
+	 * without tiling.
+	 */
+	protected void tile(List<PatternElement> elements, List<Double> offsets,
+						DoubleToIntFunction offsetForPosition, DoubleFunction<Scale<?>> scaleForPosition) {
+		double first = offsets.get(0);
+		int origin = offsetForPosition.applyAsInt(first);
+
+		List<ProducerWithOffset<PackedCollection>> notes = elements.stream()
+				.map(e -> e.getNoteDestinations(melodic, first, offsetForPosition,
+						scaleForPosition, this::nextNotePosition, origin))
 				.flatMap(List::stream)
-				.filter(p -> p > position)
-				.mapToDouble(p -> p)
-				.min().orElse(duration);
+				.collect(Collectors.toList());
+
+		if (notes.isEmpty()) {
+			System.out.println("PatternLayerManager: No inputs for sum");
+			return;
+		}
+
+		// The cycle includes the tails of any notes that extend beyond its duration
+		int length = elements.stream()
+				.mapToInt(e -> e.getNoteEndFrame(melodic, first, offsetForPosition,
+						scaleForPosition, this::nextNotePosition, origin))
+				.max().orElse(0);
+		length = Math.min(length, destination.getMemLength());
+		updateCycle(length);
+
+		cycle.clear();
+		runBatches(cycleSum, runCycleSum, notes);
+
+		PackedCollection<?> audio = cycle.range(new TraversalPolicy(length));
+		runBatches(sum, runSum, offsets.stream()
+				.map(offset -> new ProducerWithOffset<>(v(audio), offsetForPosition.applyAsInt(offset)))
+				.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Returns a key which is the same for any two cycles that produce the same notes, apart from
+	 * their position. The choice of notes only depends on the keys of the scale at the position
+	 * of every element, and for percussive patterns only the number of keys is relevant. When
+	 * positions do not correspond to a whole number of frames, the number of frames between
+	 * the beginning of the cycle and a note can also differ from one cycle to another, so that
+	 * is included as well.
+	 */
+	protected String cycleKey(List<PatternElement> elements, double offset,
+							  DoubleToIntFunction offsetForPosition, DoubleFunction<Scale<?>> scaleForPosition) {
+		StringBuilder key = new StringBuilder();
+		int origin = offsetForPosition.applyAsInt(offset);
+
+		for (PatternElement e : elements) {
+			for (double position : e.getPositions()) {
+				key.append(offsetForPosition.applyAsInt(offset + position) - origin).append(":");
+
+				List<Object> keys = new ArrayList<>();
+				scaleForPosition.apply(offset + position).forEach(keys::add);
+
+				if (melodic) {
+					keys.forEach(k -> key.append(k).append(","));
+				} else {
+					key.append(keys.size());
+				}
+
+				key.append(";");
+			}
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * Add the specified inputs to the destination of the {@link RootDelegateSegmentsAdd}, in batches
+	 * of at most {@link RootDelegateSegmentsAdd#getMaxInputs()}, so that there is no limit on the
+	 * number of inputs. The destination accumulates the result of every batch, so the result is
+	 * the same as if all of the inputs were summed at once.
+	 */
+	public static void runBatches(RootDelegateSegmentsAdd sum, Runnable run, List<? extends ProducerWithOffset> inputs) {
+		int max = sum.getMaxInputs();
+
+		for (int i = 0; i < inputs.size(); i += max) {
+			sum.getInput().clear();
+			sum.getInput().addAll(inputs.subList(i, Math.min(i + max, inputs.size())));
+			run.run();
+		}
+	}
+
+	private void updateCycle(int length) {
+		if (cycle != null && cycle.getMemLength() >= length) return;
+
+		cycle = new PackedCollection(length);
+		cycleSum = new RootDelegateSegmentsAdd<>(MAX_NOTES, cycle.traverse(1));
+		runCycleSum = cycleSum.get();
+	}
+
+	public double nextNotePosition(double position) {
+		return getIndex().nextPosition(position, duration);
 	}
 
 	public static String layerHeader() {
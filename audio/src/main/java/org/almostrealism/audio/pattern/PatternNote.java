@@ -17,7 +17,6 @@
 package org.almostrealism.audio.pattern;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import io.almostrealism.code.CachedValue;
 import io.almostrealism.expression.Product;
 import io.almostrealism.relation.Evaluable;
 import io.almostrealism.relation.Producer;
@@ -39,19 +38,22 @@ import org.almostrealism.hardware.ctx.DefaultContextSpecific;
 import org.almostrealism.time.computations.Interpolate;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
 
 public class PatternNote {
-	private static ContextSpecific<KernelizedEvaluable<PackedCollection<?>>> interpolate;
+	public static final String INTERPOLATION_MODE = "linear";
+
+	private static ThreadLocal<ContextSpecific<KernelizedEvaluable<PackedCollection<?>>>> interpolate;
+	private static NoteAudioStore store;
 
 	static {
-		interpolate = new DefaultContextSpecific<>(() ->
+		// Notes are summed by several threads at once (see PatternSystemManager#enableParallelSum),
+		// and a compiled kernel cannot be evaluated by more than one of them at a time
+		interpolate = ThreadLocal.withInitial(() -> new DefaultContextSpecific<>(() ->
 				new Interpolate(
 						new PassThroughProducer<>(-1, 0, -1),
 						new PassThroughProducer<>(1, 1),
 						new PassThroughProducer<>(2, 2, -1),
-						v -> new Product(v, HardwareFeatures.ops().expressionForDouble(1.0 / OutputLine.sampleRate))).get());
+						v -> new Product(v, HardwareFeatures.ops().expressionForDouble(1.0 / OutputLine.sampleRate))).get()));
 	}
 
 	private String source;
@@ -63,7 +65,6 @@ public class PatternNote {
 	private FileWaveDataProvider provider;
 
 	private KeyboardTuning tuning;
-	private Map<KeyPosition, CachedValue<PackedCollection>> notes;
 
 	public PatternNote() { this((String) null); }
 
@@ -78,13 +79,11 @@ public class PatternNote {
 	public PatternNote(String source, KeyPosition root) {
 		setSource(source);
 		setRoot(root);
-		notes = new HashMap<>();
 	}
 
 	public PatternNote(PackedCollection audio, KeyPosition root) {
 		setAudio(audio);
 		setRoot(root);
-		notes = new HashMap<>();
 	}
 
 	public String getSource() {
@@ -102,10 +101,7 @@ public class PatternNote {
 
 	@JsonIgnore
 	public void setTuning(KeyboardTuning tuning) {
-		if (tuning != this.tuning) {
-			this.tuning = tuning;
-			notes.clear();
-		}
+		this.tuning = tuning;
 	}
 
 	@JsonIgnore
@@ -114,6 +110,12 @@ public class PatternNote {
 		return audio.getMemLength() / (double) OutputLine.sampleRate;
 	}
 
+	/**
+	 * Returns the first frames of the audio for the specified {@link KeyPosition}. The result
+	 * is a view of the audio retained by the {@link NoteAudioCache}, whose memory may be reused
+	 * once it is evicted, so it should only be evaluated and used between calls to
+	 * {@link NoteAudioCache#begin()} and {@link NoteAudioCache#end()}.
+	 */
 	public Producer<PackedCollection> getAudio(KeyPosition<?> target, int length) {
 		return () -> {
 			Evaluable<PackedCollection> audio = getAudio(target).get();
@@ -121,27 +123,54 @@ public class PatternNote {
 		};
 	}
 
-	public CachedValue<PackedCollection> getAudio(KeyPosition<?> target) {
-		if (!notes.containsKey(target)) {
-			notes.put(target, new CachedValue<>(args -> {
-				double r = tuning.getTone(target).asHertz() / tuning.getTone(getRoot()).asHertz();
+	public Producer<PackedCollection> getAudio(KeyPosition<?> target) {
+		return () -> args -> NoteAudioCache.getGlobal().get(source == null ? getAudio() : source,
+				getRoot(), target, tuning, () -> computeAudio(target));
+	}
+
+	/**
+	 * Returns the number of frames in the audio for the specified {@link KeyPosition},
+	 * without computing it.
+	 */
+	public int getFrameCount(KeyPosition<?> target) {
+		return (int) (getRatio(target) * getAudio().getMemLength());
+	}
 
-				PackedCollection rate = new PackedCollection(1);
-				rate.setMem(0, r);
+	protected double getRatio(KeyPosition<?> target) {
+		return tuning.getTone(target).asHertz() / tuning.getTone(getRoot()).asHertz();
+	}
 
-				PackedCollection audio = getAudio();
-				PackedCollection dest = WaveData.allocateCollection((int) (r * audio.getMemLength()));
+	protected PackedCollection computeAudio(KeyPosition<?> target) {
+		double r = getRatio(target);
 
-				interpolate.getValue().kernelEvaluate(dest.traverse(1), audio.traverse(0), WaveOutput.timelineScalar.getValue(), rate.traverse(0));
-				return dest;
-			}));
+		if (store != null && source != null) {
+			return store.get(source, r, INTERPOLATION_MODE, () -> interpolate(r));
 		}
 
-		return notes.get(target);
+		return interpolate(r);
 	}
 
+	protected PackedCollection interpolate(double r) {
+		PackedCollection rate = new PackedCollection(1);
+		rate.setMem(0, r);
+
+		PackedCollection audio = getAudio();
+		PackedCollection dest = WaveData.allocateCollection((int) (r * audio.getMemLength()));
+
+		interpolate.get().getValue().kernelEvaluate(dest.traverse(1), audio.traverse(0), WaveOutput.timelineScalar.getValue(), rate.traverse(0));
+		return dest;
+	}
+
+	/**
+	 * Specify a {@link NoteAudioStore} to retain pitch shifted audio for notes that are
+	 * loaded from a file, so that it is not computed again when the process is restarted.
+	 */
+	public static void setStore(NoteAudioStore store) { PatternNote.store = store; }
+
+	public static NoteAudioStore getStore() { return store; }
+
 	@JsonIgnore
-	public PackedCollection getAudio() {
+	public synchronized PackedCollection getAudio() {
 		if (audio == null) {
 			if (provider == null) provider = new FileWaveDataProvider(source);
 			audio = provider.get().getCollection();
@@ -158,7 +187,7 @@ public class PatternNote {
 	public boolean isValid() {
 		if (audio != null) return true;
 		if (valid != null) return valid;
-		valid = Waves.isValid(new File(source), w -> w.getSampleRate() == OutputLine.sampleRate);
+		valid = Waves.isValid(new File(source), Waves::isSupportedSampleRate);
 		return valid;
 	}
 }
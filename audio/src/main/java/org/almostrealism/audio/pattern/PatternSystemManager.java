@@ -32,9 +32,14 @@ import org.almostrealism.hardware.PassThroughProducer;
 import org.almostrealism.heredity.ConfigurableGenome;
 import org.almostrealism.heredity.Genome;
 import org.almostrealism.heredity.ParameterGenome;
+import org.almostrealism.io.SystemUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.DoubleFunction;
 import java.util.function.DoubleToIntFunction;
 import java.util.function.Supplier;
@@ -47,6 +52,11 @@ import java.util.stream.IntStream;
 // 	     3. The duration of each layer
 
 public class PatternSystemManager implements CodeFeatures {
+	public static boolean enableParallelSum = SystemUtils.isEnabled("AR_PATTERN_PARALLEL_SUM").orElse(true);
+	public static int sumParallelism = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+	private static ExecutorService executor;
+
 	private List<PatternFactoryChoice> choices;
 	private List<PatternLayerManager> patterns;
 	private ConfigurableGenome genome;
@@ -55,6 +65,7 @@ public class PatternSystemManager implements CodeFeatures {
 	private PackedCollection destination;
 	private RootDelegateSegmentsAdd<PackedCollection> sum;
 	private Runnable runSum;
+	private Runnable adjustVolume;
 
 	public PatternSystemManager() {
 		this(new ArrayList<>());
@@ -87,11 +98,12 @@ public class PatternSystemManager implements CodeFeatures {
 		KernelizedEvaluable<PackedCollection<?>> scale = _multiply(
 				new PassThroughProducer<>(1, 0), new PassThroughProducer<>(1, 1, -1)).get();
 
-		OperationList generate = new OperationList("PatternSystemManager Sum");
-		generate.add(() -> sum.get());
-		generate.add(() -> () ->
+		runSum = sum.get();
+
+		OperationList v = new OperationList("PatternSystemManager Adjust Volume");
+		v.add(() -> () ->
 				scale.kernelEvaluate(this.destination.traverse(1), this.destination.traverse(1), volume));
-		runSum = generate.get();
+		adjustVolume = v.get();
 	}
 
 	public List<PatternFactoryChoice> getChoices() {
@@ -151,18 +163,57 @@ public class PatternSystemManager implements CodeFeatures {
 			return;
 		}
 
-		sum.getInput().clear();
-		patternsForChannel.forEach(i -> {
-			patterns.get(i).sum(offsetForPosition, measures, scaleForPosition);
-			sum.getInput().add(new ProducerWithOffset<>(v(patterns.get(i).getDestination()), 0));
-		});
+		// Each pattern is summed into its own intermediate destination,
+		// so they can be summed concurrently before they are combined
+		List<Runnable> ops = patternsForChannel.stream()
+				.map(patterns::get)
+				.map(p -> (Runnable) () -> p.sum(offsetForPosition, measures, scaleForPosition))
+				.collect(Collectors.toList());
+
+		NoteAudioCache.getGlobal().begin();
+
+		try {
+			if (enableParallelSum && ops.size() > 1) {
+				run(ops);
+			} else {
+				ops.forEach(Runnable::run);
+			}
+		} finally {
+			NoteAudioCache.getGlobal().end();
+		}
+
+		PatternLayerManager.runBatches(sum, runSum, patternsForChannel.stream()
+				.map(i -> new ProducerWithOffset<>(v(patterns.get(i).getDestination()), 0))
+				.collect(Collectors.toList()));
+		adjustVolume.run();
+	}
+
+	/**
+	 * Run the specified operations concurrently, returning when all of them are complete.
+	 */
+	private static void run(List<Runnable> ops) {
+		List<Future<?>> futures = ops.stream().map(getExecutor()::submit).collect(Collectors.toList());
+
+		try {
+			for (Future<?> f : futures) f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
 
-		if (sum.getInput().size() > sum.getMaxInputs()) {
-			System.out.println("PatternSystemManager: Too many patterns (" + sum.getInput().size() + ") for sum");
-			return;
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(sumParallelism, r -> {
+				Thread t = new Thread(r, "PatternSystemManager");
+				t.setDaemon(true);
+				return t;
+			});
 		}
 
-		runSum.run();
+		return executor;
 	}
 
 	public static class Settings {
@@ -2,6 +2,7 @@ package org.almostrealism.audio.computations.test;
 
 import org.almostrealism.algebra.PairTable;
 import org.almostrealism.audio.computations.ComplexFFT;
+import org.almostrealism.audio.computations.FFTPlanCache;
 import org.almostrealism.algebra.Pair;
 import org.almostrealism.algebra.PairBank;
 import org.almostrealism.hardware.HardwareException;
@@ -10,8 +11,15 @@ import org.almostrealism.util.TestFeatures;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.IntStream;
 
 public class ComplexFFTTest implements TestFeatures {
@@ -184,4 +192,81 @@ public class ComplexFFTTest implements TestFeatures {
 			}
 		}
 	}
+
+	@Test
+	public void roundTrip() {
+		Random rand = new Random(11);
+
+		for (int bins = 64; bins <= 65536; bins *= 2) {
+			PairBank in = new PairBank(bins);
+			for (int i = 0; i < bins; i++) in.set(i, 2 * rand.nextDouble() - 1, 2 * rand.nextDouble() - 1);
+
+			ComplexFFT forward = FFTPlanCache.complex(bins, true);
+			ComplexFFT inverse = FFTPlanCache.complex(bins, false);
+			assert FFTPlanCache.complex(bins, true) == forward;
+
+			long start = System.currentTimeMillis();
+			PairBank out = inverse.evaluate(forward.evaluate(in));
+			long time = System.currentTimeMillis() - start;
+
+			double expected[] = in.toArray(0, 2 * bins);
+			double actual[] = out.toArray(0, 2 * bins);
+
+			double error = 0.0;
+			for (int i = 0; i < expected.length; i++) {
+				error = Math.max(error, Math.abs(expected[i] - actual[i]));
+			}
+
+			System.out.println("ComplexFFTTest: Round trip for " + bins + " bins required " +
+					time + " msec (max error " + error + ")");
+			assert error < 1e-3;
+		}
+	}
+
+	@Test
+	public void concurrentPlans() throws Exception {
+		int bins = 1024;
+		int threads = 4;
+
+		Random rand = new Random(13);
+		PairBank in = new PairBank(bins);
+		for (int i = 0; i < bins; i++) in.set(i, 2 * rand.nextDouble() - 1, 2 * rand.nextDouble() - 1);
+		double expected[] = FFTPlanCache.complex(bins, true).evaluate(in).toArray(0, 2 * bins);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			List<Future<ComplexFFT>> futures = new ArrayList<>();
+
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					ComplexFFT fft = FFTPlanCache.complex(bins, true);
+					assert FFTPlanCache.complex(bins, true) == fft;
+
+					for (int r = 0; r < 20; r++) {
+						double actual[] = fft.evaluate(in).toArray(0, 2 * bins);
+						for (int i = 0; i < expected.length; i++) {
+							assert Math.abs(expected[i] - actual[i]) < 1e-3;
+						}
+					}
+
+					return fft;
+				}));
+			}
+
+			// Every thread must share the same transform
+			Set<ComplexFFT> plans = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (Future<ComplexFFT> f : futures) plans.add(f.get());
+			assert plans.size() == 1;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void inverseKernel() {
+		int bins = 64;
+		PairBank in = new PairBank(bins);
+		FFTPlanCache.complex(bins, false).kernelEvaluate(new PairBank(bins), new MemoryBank[] { in });
+	}
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.computations.test;
+
+import org.almostrealism.algebra.PairBank;
+import org.almostrealism.audio.computations.ComplexFFT;
+import org.almostrealism.audio.computations.FFTPlanCache;
+import org.almostrealism.audio.computations.RealFFT;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class RealFFTTest {
+	/**
+	 * Padded window sizes for 25ms frames at 8kHz, 16kHz, 22.05kHz and 44.1kHz.
+	 */
+	public static final int SIZES[] = { 256, 512, 1024, 2048 };
+	public static final int FRAMES = 500;
+
+	protected double[] complexPowerSpectrum(ComplexFFT fft, double real[], int offset, int size) {
+		PairBank in = new PairBank(size);
+		for (int i = 0; i < size; i++) in.set(i, real[offset + i], 0.0);
+
+		double x[] = fft.evaluate(in).toArray(0, size + 2);
+		double out[] = new double[size / 2 + 1];
+		for (int k = 0; k < out.length; k++) out[k] = x[2 * k] * x[2 * k] + x[2 * k + 1] * x[2 * k + 1];
+		return out;
+	}
+
+	@Test
+	public void powerSpectrum() {
+		Random rand = new Random(3);
+
+		for (int size : SIZES) {
+			double real[] = new double[FRAMES * size];
+			for (int i = 0; i < real.length; i++) real[i] = 2 * rand.nextDouble() - 1;
+
+			ComplexFFT complex = FFTPlanCache.complex(size, true);
+			RealFFT fft = FFTPlanCache.real(size);
+
+			// Warm up both paths, so that compilation is not included in the timing
+			complexPowerSpectrum(complex, real, 0, size);
+			fft.powerSpectrum(real, 0, new double[fft.getBins()], 0);
+
+			double expected[][] = new double[FRAMES][];
+			long start = System.currentTimeMillis();
+			for (int f = 0; f < FRAMES; f++) expected[f] = complexPowerSpectrum(complex, real, f * size, size);
+			long complexTime = System.currentTimeMillis() - start;
+
+			double actual[] = new double[FRAMES * fft.getBins()];
+			start = System.currentTimeMillis();
+			for (int f = 0; f < FRAMES; f++) fft.powerSpectrum(real, f * size, actual, f * fft.getBins());
+			long realTime = System.currentTimeMillis() - start;
+
+			System.out.println("RealFFTTest: " + FRAMES + " frames of " + size + " required " + complexTime +
+					" msec with ComplexFFT and " + realTime + " msec with RealFFT");
+
+			for (int f = 0; f < FRAMES; f++) {
+				for (int k = 0; k < fft.getBins(); k++) {
+					double e = expected[f][k];
+					double a = actual[f * fft.getBins() + k];
+					assert Math.abs(e - a) <= 1e-3 * Math.max(1.0, e) : size + " bin " + k + ": " + a + " != " + e;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.data.test;
+
+import org.almostrealism.algebra.ScalarBank;
+import org.almostrealism.audio.WavFile;
+import org.almostrealism.audio.Waves;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.collect.PackedCollection;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class WaveDataLoadTest {
+	private static final File input = new File("src/main/resources/test.wav");
+
+	@Test
+	public void mappedMatchesStream() throws IOException {
+		WavFile stream = WavFile.openWavFile(input);
+		double data[][] = new double[stream.getNumChannels()][(int) stream.getFramesRemaining()];
+		stream.readFrames(data, (int) stream.getFramesRemaining());
+		stream.close();
+
+		for (int c = 0; c < data.length; c++) {
+			WavFile mapped = WavFile.openWavFile(input);
+			PackedCollection<?> values = mapped.readChannel(c);
+			mapped.close();
+
+			assert values.getMemLength() == data[c].length;
+
+			double out[] = values.toArray(0, values.getMemLength());
+			for (int i = 0; i < out.length; i++) {
+				assert Math.abs(out[i] - data[c][i]) < 1e-9;
+			}
+		}
+	}
+
+	@Test
+	public void loadPerformance() throws IOException {
+		int iterations = 200;
+
+		WaveData.enableMappedLoad = false;
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < iterations; i++) WaveData.load(input);
+		long streamTime = System.currentTimeMillis() - start;
+
+		WaveData.enableMappedLoad = true;
+		start = System.currentTimeMillis();
+		for (int i = 0; i < iterations; i++) WaveData.load(input);
+		long mappedTime = System.currentTimeMillis() - start;
+
+		System.out.println("WaveDataLoadTest: Stream load required " + streamTime / (double) iterations + " msec on average");
+		System.out.println("WaveDataLoadTest: Mapped load required " + mappedTime / (double) iterations + " msec on average");
+	}
+
+	@Test
+	public void truncated() throws IOException {
+		File truncated = new File("results/truncated-test.wav");
+		truncated.getParentFile().mkdirs();
+		Files.copy(input.toPath(), truncated.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		long length = truncated.length();
+		try (RandomAccessFile f = new RandomAccessFile(truncated, "rw")) {
+			f.setLength(length / 2);
+		}
+
+		WavFile w = WavFile.openWavFile(truncated);
+		assert w.getAvailableFrames() < w.getNumFrames();
+
+		PackedCollection<?> values = w.readChannel(0);
+		assert values.getMemLength() == w.getAvailableFrames();
+		w.close();
+
+		try {
+			Waves.loadAudio(truncated);
+			assert false;
+		} catch (IOException e) {
+			System.out.println("WaveDataLoadTest: " + e.getMessage());
+		}
+	}
+
+	@Test
+	public void scalarFromPosition() throws IOException {
+		WavFile stream = WavFile.openWavFile(input);
+		int[][] data = new int[stream.getNumChannels()][(int) stream.getFramesRemaining()];
+		stream.readFrames(data, (int) stream.getFramesRemaining());
+		stream.close();
+
+		int skip = data[0].length / 3;
+
+		WavFile mapped = WavFile.openWavFile(input);
+		mapped.readFrames(new int[mapped.getNumChannels()][skip], skip);
+		ScalarBank values = mapped.readChannelScalar(0);
+		assert mapped.getFramesRemaining() == 0;
+		mapped.close();
+
+		assert values.getCount() == data[0].length - skip;
+
+		for (int i = 0; i < values.getCount(); i++) {
+			assert values.get(i).getValue() == data[0][skip + i];
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.data.test;
+
+import org.almostrealism.audio.OutputLine;
+import org.almostrealism.audio.WavFile;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.collect.PackedCollection;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class WaveDataSaveTest {
+	@Test
+	public void blockMatchesFrames() throws IOException {
+		int frames = 10 * OutputLine.sampleRate;
+
+		PackedCollection<?> wave = new PackedCollection<>(frames);
+		for (int i = 0; i < frames; i++) {
+			wave.setMem(i, 0.8 * Math.sin(2 * Math.PI * 440 * i / (double) OutputLine.sampleRate));
+		}
+
+		File frameFile = new File("results/save-frames-test.wav");
+		File blockFile = new File("results/save-block-test.wav");
+
+		long start = System.currentTimeMillis();
+		WavFile wav = WavFile.newWavFile(frameFile, 2, frames, 24, OutputLine.sampleRate);
+		for (int i = 0; i < frames; i++) {
+			double value = wave.toDouble(i);
+			wav.writeFrames(new double[][]{{value}, {value}}, 1);
+		}
+		wav.close();
+		long frameTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		new WaveData(wave, OutputLine.sampleRate).save(blockFile);
+		long blockTime = System.currentTimeMillis() - start;
+
+		System.out.println("WaveDataSaveTest: Frame writer required " + frameTime + " msec");
+		System.out.println("WaveDataSaveTest: Block writer required " + blockTime + " msec");
+
+		assert Arrays.equals(Files.readAllBytes(frameFile.toPath()), Files.readAllBytes(blockFile.toPath()));
+	}
+}
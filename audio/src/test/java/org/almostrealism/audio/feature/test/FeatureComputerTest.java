@@ -11,6 +11,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -45,6 +46,66 @@ public class FeatureComputerTest {
 		// TODO  check that all futures completed
 	}
 
+	protected ScalarBank waveform(int seconds) {
+		ScalarBank wave = new ScalarBank(16000 * seconds);
+
+		for (int i = 0; i < wave.getCount(); i++) {
+			double t = i / 16000.0;
+			wave.set(i, 8000 * Math.sin(2 * Math.PI * 440 * t) +
+					2000 * Math.sin(2 * Math.PI * (200 + 50 * t) * t) +
+					500 * Math.sin(i * 7.3));
+		}
+
+		return wave;
+	}
+
+	protected List<double[]> compute(FeatureComputer mfcc, ScalarBank wave) {
+		List<double[]> features = new ArrayList<>();
+		mfcc.compute(wave, 1.0, (r, v) -> features.add(IntStream.range(0, v.getCount()).mapToDouble(i -> v.get(i).getValue()).toArray()));
+		return features;
+	}
+
+	@Test
+	public void batch() {
+		ScalarBank wave = waveform(10);
+		FeatureComputer mfcc = new FeatureComputer(new FeatureSettings());
+
+		// Warm up both paths, so that compilation is not included in the timing
+		FeatureComputer.enableBatch = false;
+		compute(mfcc, waveform(1));
+		FeatureComputer.enableBatch = true;
+		compute(mfcc, waveform(1));
+
+		try {
+			FeatureComputer.enableBatch = false;
+			long start = System.currentTimeMillis();
+			List<double[]> expected = compute(mfcc, wave);
+			long frameTime = System.currentTimeMillis() - start;
+
+			FeatureComputer.enableBatch = true;
+			start = System.currentTimeMillis();
+			List<double[]> actual = compute(mfcc, wave);
+			long batchTime = System.currentTimeMillis() - start;
+
+			System.out.println("FeatureComputerTest: Per-frame path computed " + expected.size() + " frames at " +
+					(1000 * expected.size() / Math.max(frameTime, 1)) + " frames/sec");
+			System.out.println("FeatureComputerTest: Batched path computed " + actual.size() + " frames at " +
+					(1000 * actual.size() / Math.max(batchTime, 1)) + " frames/sec");
+
+			assert expected.size() == actual.size();
+
+			for (int r = 0; r < expected.size(); r++) {
+				for (int i = 0; i < expected.get(r).length; i++) {
+					double e = expected.get(r)[i];
+					double a = actual.get(r)[i];
+					assert Math.abs(e - a) <= 0.001 * Math.max(1.0, Math.abs(e)) : "Frame " + r + ", coefficient " + i + ": " + a + " != " + e;
+				}
+			}
+		} finally {
+			FeatureComputer.enableBatch = false;
+		}
+	}
+
 	public static void computeFeatures(WavFile file, Consumer<Tensor<Scalar>> output) throws IOException {
 		FeatureComputer mfcc = computers.get();
 
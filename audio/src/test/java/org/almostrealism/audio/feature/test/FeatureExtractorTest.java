@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.feature.test;
+
+import org.almostrealism.audio.WavFile;
+import org.almostrealism.audio.feature.FeatureExtractor;
+import org.almostrealism.audio.feature.FeatureSettings;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FeatureExtractorTest {
+	public static final int UTTERANCES = 12;
+
+	protected File utterances() throws IOException {
+		File dir = new File("results/feature-extractor-test");
+		dir.mkdirs();
+
+		for (int u = 0; u < UTTERANCES; u++) {
+			int frames = 16000 * (1 + u % 3);
+			double data[][] = new double[1][frames];
+
+			for (int i = 0; i < frames; i++) {
+				data[0][i] = 0.5 * Math.sin(2 * Math.PI * (200 + 20 * u) * i / 16000.0);
+			}
+
+			WavFile wav = WavFile.newWavFile(new File(dir, String.format("utt-%02d.wav", u)), 1, frames, 16, 16000);
+			wav.writeFrames(data, frames);
+			wav.close();
+		}
+
+		return dir;
+	}
+
+	@Test
+	public void ordered() throws IOException {
+		File dir = utterances();
+
+		FeatureExtractor extractor = new FeatureExtractor(new FeatureSettings(), 4, 2);
+		List<String> keys = new ArrayList<>();
+
+		FeatureExtractor.Statistics stats = extractor.process(dir, true, (key, features) -> {
+			assert features.length() > 0;
+			keys.add(key);
+		});
+
+		extractor.shutdown();
+		System.out.println(stats.describe());
+
+		assert stats.getUtteranceCount() == UTTERANCES;
+		assert stats.getFailureCount() == 0;
+		assert keys.size() == UTTERANCES;
+
+		for (int u = 0; u < UTTERANCES; u++) {
+			assert keys.get(u).equals(String.format("utt-%02d", u));
+		}
+	}
+
+	@Test
+	public void consumerFailure() throws IOException {
+		File dir = utterances();
+
+		FeatureExtractor extractor = new FeatureExtractor(new FeatureSettings(), 4, 2);
+		List<String> keys = new ArrayList<>();
+
+		// A consumer failure must not prevent the utterances after it from being delivered
+		FeatureExtractor.Statistics stats = extractor.process(dir, true, (key, features) -> {
+			if (key.equals("utt-03")) throw new IllegalStateException("Unable to store " + key);
+			keys.add(key);
+		});
+
+		extractor.shutdown();
+		System.out.println(stats.describe());
+
+		assert stats.getUtteranceCount() == UTTERANCES - 1;
+		assert stats.getFailureCount() == 1;
+		assert keys.size() == UTTERANCES - 1;
+		assert !keys.contains("utt-03");
+		assert keys.get(keys.size() - 1).equals(String.format("utt-%02d", UTTERANCES - 1));
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.feature.test;
+
+import org.almostrealism.algebra.Scalar;
+import org.almostrealism.algebra.ScalarBank;
+import org.almostrealism.audio.feature.Bin;
+import org.almostrealism.audio.feature.FeatureSettings;
+import org.almostrealism.audio.feature.MelBanks;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class MelBanksTest {
+	public static final int FRAMES = 1000;
+
+	protected double expected(MelBanks banks, double spectrum[], int offset, int bin) {
+		Bin b = banks.getBins().get(bin);
+		double energy = 0.0;
+
+		for (int i = 0; i < b.getValue().getCount(); i++) {
+			energy += b.getValue().get(i).getValue() * spectrum[offset + b.getKey() + i];
+		}
+
+		return energy;
+	}
+
+	@Test
+	public void sparse() {
+		FeatureSettings settings = new FeatureSettings();
+		MelBanks banks = new MelBanks(settings.getMelBanksSettings(), settings.getFrameExtractionSettings(), new Scalar(1.0));
+
+		int spectrumSize = settings.getFrameExtractionSettings().getPaddedWindowSize() / 2 + 1;
+		int numBins = banks.getNumBins();
+
+		Random rand = new Random(7);
+		double spectrum[] = new double[FRAMES * spectrumSize];
+		for (int i = 0; i < spectrum.length; i++) spectrum[i] = 100 * rand.nextDouble();
+
+		double energies[] = new double[FRAMES * numBins];
+
+		long start = System.currentTimeMillis();
+		banks.compute(spectrum, FRAMES, spectrumSize, energies);
+		System.out.println("MelBanksTest: " + FRAMES + " frames required " + (System.currentTimeMillis() - start) + " msec");
+
+		for (int f = 0; f < FRAMES; f++) {
+			for (int b = 0; b < numBins; b++) {
+				assert Math.abs(energies[f * numBins + b] - expected(banks, spectrum, f * spectrumSize, b)) < 1e-9;
+			}
+		}
+
+		// A single frame, through the ScalarBank interface
+		ScalarBank frame = new ScalarBank(spectrumSize);
+		for (int i = 0; i < spectrumSize; i++) frame.set(i, spectrum[i]);
+
+		ScalarBank out = new ScalarBank(numBins);
+		banks.compute(frame, out);
+
+		for (int b = 0; b < numBins; b++) {
+			assert Math.abs(out.get(b).getValue() - energies[b]) < 1e-6;
+		}
+	}
+}
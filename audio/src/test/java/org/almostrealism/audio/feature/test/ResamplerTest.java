@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.feature.test;
+
+import org.almostrealism.audio.feature.Resampler;
+import org.almostrealism.collect.PackedCollection;
+import org.junit.Test;
+
+public class ResamplerTest {
+	protected double[] sine(int samples, int sampleRate, double freq) {
+		double data[] = new double[samples];
+		for (int i = 0; i < samples; i++) data[i] = Math.sin(2 * Math.PI * freq * i / sampleRate);
+		return data;
+	}
+
+	@Test
+	public void streaming() {
+		double input[] = sine(44100 * 3, 44100, 440);
+
+		double expected[] = Resampler.create(44100, 48000).resample(input, 0, input.length, true);
+
+		Resampler resampler = Resampler.create(44100, 48000);
+		double actual[] = new double[expected.length];
+		int pos = 0;
+
+		for (int start = 0; start < input.length; start += 1000) {
+			int count = Math.min(1000, input.length - start);
+			double out[] = resampler.resample(input, start, count, start + count >= input.length);
+			System.arraycopy(out, 0, actual, pos, out.length);
+			pos += out.length;
+		}
+
+		assert pos == expected.length;
+		assert expected.length == Resampler.getOutputLength(input.length, 44100, 48000);
+
+		for (int i = 0; i < expected.length; i++) {
+			assert Math.abs(expected[i] - actual[i]) < 1e-9 : "Sample " + i + ": " + actual[i] + " != " + expected[i];
+		}
+	}
+
+	@Test
+	public void sine() {
+		int rates[][] = { { 44100, 48000 }, { 48000, 44100 }, { 22050, 44100 }, { 96000, 44100 } };
+
+		for (int rate[] : rates) {
+			double input[] = sine(rate[0] * 2, rate[0], 440);
+			PackedCollection<?> in = new PackedCollection(input.length);
+			in.setMem(0, input);
+
+			long start = System.currentTimeMillis();
+			PackedCollection<?> out = Resampler.resample(in, rate[0], rate[1]);
+			System.out.println("ResamplerTest: Resampling 2 seconds from " + rate[0] + " to " + rate[1] +
+					" required " + (System.currentTimeMillis() - start) + " msec");
+
+			assert out.getMemLength() == Resampler.getOutputLength(input.length, rate[0], rate[1]);
+
+			double expected[] = sine(out.getMemLength(), rate[1], 440);
+			double actual[] = out.toArray(0, out.getMemLength());
+
+			// Ignore the edges, where the filter extends past the end of the input
+			for (int i = rate[1] / 10; i < actual.length - rate[1] / 10; i++) {
+				assert Math.abs(expected[i] - actual[i]) < 0.01 : rate[0] + " to " + rate[1] + ", sample " + i;
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.feature.test;
+
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.audio.feature.STFT;
+import org.almostrealism.collect.PackedCollection;
+import org.junit.Test;
+
+public class STFTTest {
+	public static final int SAMPLE_RATE = 16000;
+
+	protected WaveData wave(int samples) {
+		PackedCollection<?> data = new PackedCollection(samples);
+
+		for (int i = 0; i < samples; i++) {
+			double t = i / (double) SAMPLE_RATE;
+			data.setMem(i, 0.5 * Math.sin(2 * Math.PI * 1000 * t) + 0.25 * Math.sin(2 * Math.PI * 3100 * t));
+		}
+
+		return new WaveData(data, SAMPLE_RATE);
+	}
+
+	@Test
+	public void peak() {
+		STFT stft = new STFT(512, 128);
+		PackedCollection<?> spectrum = stft.forward(wave(SAMPLE_RATE));
+
+		int bins = stft.getBins();
+		int frame = stft.getFrameCount(SAMPLE_RATE) / 2;
+		double data[] = spectrum.toArray(frame * 2 * bins, 2 * bins);
+
+		int peak = 0;
+		double max = 0.0;
+
+		for (int k = 0; k < bins; k++) {
+			double power = data[2 * k] * data[2 * k] + data[2 * k + 1] * data[2 * k + 1];
+
+			if (power > max) {
+				max = power;
+				peak = k;
+			}
+		}
+
+		// 1000Hz is bin 32 of a 512 point transform at 16kHz
+		assert peak == 32;
+	}
+
+	@Test
+	public void roundTrip() {
+		WaveData wave = wave(5 * SAMPLE_RATE);
+		int length = wave.getCollection().getMemLength();
+
+		// An odd and an even number of frames, as the inverse recovers frames in pairs
+		for (int hop : new int[] { 100, 128, 200 }) {
+			STFT stft = new STFT(400, hop);
+
+			long start = System.currentTimeMillis();
+			PackedCollection<?> spectrum = stft.forward(wave);
+			long forwardTime = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			WaveData out = stft.inverse(spectrum, length, SAMPLE_RATE);
+			long inverseTime = System.currentTimeMillis() - start;
+
+			System.out.println("STFTTest: " + stft.getFrameCount(length) + " frames (hop " + hop + ") required " +
+					forwardTime + " msec forward and " + inverseTime + " msec inverse");
+
+			double expected[] = wave.getCollection().toArray(0, length);
+			double actual[] = out.getCollection().toArray(0, length);
+
+			for (int i = 0; i < length; i++) {
+				assert Math.abs(expected[i] - actual[i]) < 1e-3 : "Sample " + i + ": " + actual[i] + " != " + expected[i];
+			}
+		}
+	}
+}
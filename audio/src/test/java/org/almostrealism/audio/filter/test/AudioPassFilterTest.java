@@ -22,12 +22,15 @@ import org.almostrealism.algebra.ScalarBank;
 import org.almostrealism.audio.WavFile;
 import org.almostrealism.audio.WaveOutput;
 import org.almostrealism.audio.filter.AudioPassFilter;
+import org.almostrealism.audio.filter.AudioPassFilterComputation;
 import org.almostrealism.collect.PackedCollection;
 import org.almostrealism.util.TestFeatures;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class AudioPassFilterTest implements TestFeatures {
 	@Test
@@ -66,4 +69,67 @@ public class AudioPassFilterTest implements TestFeatures {
 
 		wav.close();
 	}
+
+	/**
+	 * Filters the samples with a high pass and a low pass filter for each of the
+	 * specified number of sources, returning the output of the last source.
+	 */
+	protected double[] filter(PackedCollection<?> values, int sampleRate, int sources) {
+		List<Scalar> current = new ArrayList<>();
+		List<Runnable> ticks = new ArrayList<>();
+		Evaluable<PackedCollection<?>> ev = null;
+
+		for (int s = 0; s < sources; s++) {
+			Scalar in = new Scalar();
+			current.add(in);
+
+			AudioPassFilter hp = new AudioPassFilter(sampleRate, c(2000 + 100 * s), v(0.1), true);
+			AudioPassFilter lp = new AudioPassFilter(sampleRate, c(8000 - 100 * s), v(0.1), false);
+			ev = lp.getResultant(hp.getResultant(p(in))).get();
+			ticks.add(hp.tick().get());
+			ticks.add(lp.tick().get());
+		}
+
+		double out[] = new double[values.getCount()];
+
+		long start = System.currentTimeMillis();
+
+		for (int i = 0; i < values.getCount(); i++) {
+			double value = values.get(i).toDouble(0);
+			current.forEach(in -> in.setValue(value));
+			ticks.forEach(Runnable::run);
+			out[i] = ev.evaluate().toDouble(0);
+		}
+
+		System.out.println("AudioPassFilterTest: Filtering " + values.getCount() + " samples for " + sources +
+				" sources required " + (System.currentTimeMillis() - start) + " msec (coefficient cache " +
+				(AudioPassFilterComputation.enableCoefficientCache ? "enabled" : "disabled") + ")");
+		return out;
+	}
+
+	@Test
+	public void coefficientCache() throws IOException {
+		WavFile f = WavFile.openWavFile(new File("src/test/resources/Snare Perc DD.wav"));
+
+		double data[][] = new double[f.getNumChannels()][(int) f.getFramesRemaining()];
+		f.readFrames(data, (int) f.getFramesRemaining());
+
+		PackedCollection<?> values = WavFile.channel(data, 0);
+
+		boolean enabled = AudioPassFilterComputation.enableCoefficientCache;
+
+		try {
+			AudioPassFilterComputation.enableCoefficientCache = false;
+			double expected[] = filter(values, (int) f.getSampleRate(), 5);
+
+			AudioPassFilterComputation.enableCoefficientCache = true;
+			double actual[] = filter(values, (int) f.getSampleRate(), 5);
+
+			for (int i = 0; i < expected.length; i++) {
+				assert Math.abs(expected[i] - actual[i]) < 1e-9;
+			}
+		} finally {
+			AudioPassFilterComputation.enableCoefficientCache = enabled;
+		}
+	}
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.health.test;
+
+import org.almostrealism.audio.health.AudioHealthScore;
+import org.almostrealism.audio.health.AudioHealthScoreCache;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class AudioHealthScoreCacheTest {
+	public static final int OUTPUT_SIZE = 1000;
+
+	protected String output(File dir, String name) throws IOException {
+		File f = new File(dir, name);
+		Files.write(f.toPath(), new byte[OUTPUT_SIZE]);
+		return f.getPath();
+	}
+
+	@Test
+	public void storeAndEvict() throws IOException {
+		File dir = new File("results/health-cache-test");
+		File existing[] = dir.listFiles();
+		if (existing != null) for (File f : existing) f.delete();
+
+		File outputs = new File("results/health-cache-test-output");
+		outputs.mkdirs();
+
+		// Enough for the copies of two outputs, with their scores, but not three
+		long budget = 5 * OUTPUT_SIZE / 2;
+
+		AudioHealthScoreCache cache = new AudioHealthScoreCache(dir, budget);
+		cache.put("a", new AudioHealthScore(0.25, output(outputs, "a.wav")));
+		cache.put("b", new AudioHealthScore(0.5, output(outputs, "b.wav")));
+
+		assert cache.get("a").get().getScore() == 0.25;
+
+		// "b" is now the least recently used entry
+		cache.put("c", new AudioHealthScore(0.75, output(outputs, "c.wav")));
+		assert cache.get("b").isEmpty();
+		assert !new File(dir, "b.wav").exists();
+		assert cache.size() == 2;
+		assert cache.getSize() <= cache.getBudget();
+		assert cache.getHitCount() == 1;
+		assert cache.getMissCount() == 1;
+
+		AudioHealthScoreCache reloaded = new AudioHealthScoreCache(dir, budget);
+		assert reloaded.size() == 2;
+		assert reloaded.getSize() == cache.getSize();
+		assert reloaded.get("c").get().getScore() == 0.75;
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.optimize.test;
+
+import org.almostrealism.audio.AudioScene;
+import org.almostrealism.audio.OutputLine;
+import org.almostrealism.audio.optimize.AudioScenePopulationPool;
+import org.almostrealism.audio.optimize.CellularAudioOptimizer;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.heredity.Genome;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class AudioScenePopulationPoolTest {
+	protected AudioScene<?> scene() {
+		return new AudioScene<>(null, 120, 2, 2, OutputLine.sampleRate);
+	}
+
+	protected List<Genome<PackedCollection<?>>> genomes(int count) {
+		Supplier<Genome<PackedCollection<?>>> generator = CellularAudioOptimizer.generator(scene()).get();
+		return IntStream.range(0, count).mapToObj(i -> generator.get()).collect(Collectors.toList());
+	}
+
+	protected long evaluate(List<Genome<PackedCollection<?>>> genomes, int replicas, List<Double> scores) {
+		return evaluate(genomes, replicas, 8, scores);
+	}
+
+	protected long evaluate(List<Genome<PackedCollection<?>>> genomes, int replicas, int duration, List<Double> scores) {
+		return evaluate(genomes, replicas, duration, scores, pool -> { });
+	}
+
+	protected long evaluate(List<Genome<PackedCollection<?>>> genomes, int replicas, int duration, List<Double> scores,
+							Consumer<AudioScenePopulationPool<PackedCollection<?>>> inspect) {
+		AtomicInteger index = new AtomicInteger();
+
+		AudioScenePopulationPool<PackedCollection<?>> pool = new AudioScenePopulationPool<>(this::scene, replicas, genomes);
+		pool.setMaxDuration(duration);
+		pool.setOutputFile(() -> "results/population-pool-test-" + replicas + "-" + index.incrementAndGet() + ".wav");
+		pool.init(genomes.get(0));
+
+		try {
+			long start = System.currentTimeMillis();
+			pool.computeHealth().forEach(s -> {
+				System.out.println("AudioScenePopulationPoolTest: Score = " + s.getScore());
+				scores.add(s.getScore());
+			});
+
+			long time = System.currentTimeMillis() - start;
+			inspect.accept(pool);
+			return time;
+		} finally {
+			pool.destroy();
+		}
+	}
+
+	@Test
+	public void scaling() {
+		List<Genome<PackedCollection<?>>> genomes = genomes(8);
+
+		List<Double> serialScores = new ArrayList<>();
+		List<Double> parallelScores = new ArrayList<>();
+
+		long serial = evaluate(genomes, 1, serialScores);
+		long parallel = evaluate(genomes, 4, parallelScores);
+
+		System.out.println("AudioScenePopulationPoolTest: 1 replica required " + serial + " msec");
+		System.out.println("AudioScenePopulationPoolTest: 4 replicas required " + parallel + " msec");
+
+		// Each replica is isolated, so the scores must not depend on how many there are
+		assert serialScores.size() == genomes.size();
+		assert parallelScores.size() == genomes.size();
+
+		for (int i = 0; i < genomes.size(); i++) {
+			assert Math.abs(serialScores.get(i) - parallelScores.get(i)) < 1e-9;
+		}
+	}
+
+	@Test
+	public void survivors() {
+		double scores[] = { 0.3, 0.9, 0.1, 0.5, 0.7, 0.2, 0.8 };
+		List<Integer> indices = IntStream.range(0, scores.length).boxed().collect(Collectors.toList());
+
+		List<Integer> survivors = AudioScenePopulationPool.survivors(indices, scores, 0.5);
+		assert survivors.equals(List.of(1, 6, 4, 3));
+
+		assert AudioScenePopulationPool.survivors(List.of(2), scores, 0.5).equals(List.of(2));
+		assert AudioScenePopulationPool.survivors(new ArrayList<>(), scores, 0.5).isEmpty();
+	}
+
+	@Test
+	public void successiveHalving() {
+		List<Genome<PackedCollection<?>>> genomes = genomes(16);
+
+		List<Double> fullScores = new ArrayList<>();
+		List<Double> halvingScores = new ArrayList<>();
+
+		AudioScenePopulationPool.enableSuccessiveHalving = false;
+		long full = evaluate(genomes, 2, 40, fullScores);
+
+		int bracket = AudioScenePopulationPool.successiveHalvingBracket;
+
+		try {
+			AudioScenePopulationPool.enableSuccessiveHalving = true;
+			AudioScenePopulationPool.successiveHalvingBracket = genomes.size();
+			long halving = evaluate(genomes, 2, 40, halvingScores, pool -> {
+				List<Integer> rungs = pool.getRungSizes();
+				System.out.println("AudioScenePopulationPoolTest: Rungs = " + rungs);
+
+				assert rungs.get(0) == genomes.size();
+
+				// No more than the specified fraction continues to the next rung
+				for (int r = 1; r < rungs.size(); r++) {
+					double kept = Math.ceil(rungs.get(r - 1) * (1.0 - AudioScenePopulationPool.successiveHalvingDrop));
+					assert rungs.get(r) <= Math.max(1, kept);
+				}
+
+				// A genome that was not dropped was evaluated completely
+				for (int i = 0; i < genomes.size(); i++) {
+					if (!pool.isDropped(i)) {
+						assert Math.abs(halvingScores.get(i) - fullScores.get(i)) < 1e-9;
+					}
+				}
+
+				// Survivors continue rendering, so no frame is rendered twice
+				System.out.println("AudioScenePopulationPoolTest: Rendered " + pool.getRenderedFrames() +
+						" frames, saved " + pool.getSavedFrames() + " frames");
+				assert pool.getRenderedFrames() + pool.getSavedFrames() <= genomes.size() * 40L * OutputLine.sampleRate;
+			});
+
+			System.out.println("AudioScenePopulationPoolTest: Full evaluation required " + full + " msec");
+			System.out.println("AudioScenePopulationPoolTest: Successive halving required " + halving + " msec");
+		} finally {
+			AudioScenePopulationPool.enableSuccessiveHalving = false;
+			AudioScenePopulationPool.successiveHalvingBracket = bracket;
+		}
+	}
+}
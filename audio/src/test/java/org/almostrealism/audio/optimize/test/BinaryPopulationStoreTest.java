@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.optimize.test;
+
+import org.almostrealism.audio.AudioScene;
+import org.almostrealism.audio.OutputLine;
+import org.almostrealism.audio.optimize.AudioPopulationOptimizer;
+import org.almostrealism.audio.optimize.AudioScenePopulationPool;
+import org.almostrealism.audio.optimize.BinaryPopulationStore;
+import org.almostrealism.audio.optimize.CellularAudioOptimizer;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.heredity.Genome;
+import org.almostrealism.heredity.GenomeBreeder;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class BinaryPopulationStoreTest {
+	protected List<Genome<PackedCollection<?>>> genomes(int count) {
+		AudioScene<?> scene = new AudioScene<>(null, 120, 6, 3, OutputLine.sampleRate);
+		Supplier<Genome<PackedCollection<?>>> generator = CellularAudioOptimizer.generator(scene).get();
+		return IntStream.range(0, count).mapToObj(i -> generator.get()).collect(Collectors.toList());
+	}
+
+	protected AudioScene<?> scene() {
+		return new AudioScene<>(null, 120, 2, 2, OutputLine.sampleRate);
+	}
+
+	protected List<Double> health(List<Genome<PackedCollection<?>>> genomes) {
+		AtomicInteger index = new AtomicInteger();
+
+		AudioScenePopulationPool<PackedCollection<?>> pool = new AudioScenePopulationPool<>(this::scene, 1, genomes);
+		pool.setMaxDuration(8);
+		pool.setOutputFile(() -> "results/population-store-health-" + index.incrementAndGet() + ".wav");
+		pool.init(genomes.get(0));
+
+		try {
+			List<Double> scores = new ArrayList<>();
+			pool.computeHealth().forEach(s -> scores.add(s.getScore()));
+			return scores;
+		} finally {
+			pool.destroy();
+		}
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		List<Genome<PackedCollection<?>>> genomes = genomes(20);
+
+		BinaryPopulationStore store = new BinaryPopulationStore(new File("results/population-store-test.bin"));
+		store.write(genomes.subList(0, 10));
+		store.append(genomes.subList(10, 20));
+		assert store.size() == 20;
+
+		// Storing the genomes that were read should produce the same file
+		BinaryPopulationStore copy = new BinaryPopulationStore(new File("results/population-store-copy.bin"));
+		copy.write(new BinaryPopulationStore(store.getFile()).readAll());
+		assert Arrays.equals(Files.readAllBytes(store.getFile().toPath()), Files.readAllBytes(copy.getFile().toPath()));
+
+		BinaryPopulationStore single = new BinaryPopulationStore(new File("results/population-store-single.bin"));
+		single.write(List.of(new BinaryPopulationStore(store.getFile()).read(15)));
+		copy.write(genomes.subList(15, 16));
+		assert Arrays.equals(Files.readAllBytes(single.getFile().toPath()), Files.readAllBytes(copy.getFile().toPath()));
+	}
+
+	@Test
+	public void compareWithXml() throws IOException {
+		List<Genome<PackedCollection<?>>> genomes = genomes(1000);
+
+		File xml = new File("results/population-store-test.xml");
+		File bin = new File("results/population-store-test.bin");
+
+		long start = System.currentTimeMillis();
+		AudioPopulationOptimizer.store(genomes, new FileOutputStream(xml));
+		long xmlStore = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		List<Genome<PackedCollection<?>>> xmlGenomes = AudioPopulationOptimizer.read(new FileInputStream(xml));
+		long xmlRead = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		new BinaryPopulationStore(bin).write(genomes);
+		long binStore = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		List<Genome<PackedCollection<?>>> binGenomes = new BinaryPopulationStore(bin).readAll();
+		long binRead = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		new BinaryPopulationStore(bin).read(999);
+		long binRandom = System.currentTimeMillis() - start;
+
+		System.out.println("BinaryPopulationStoreTest: XML store = " + xmlStore + " msec, read = " + xmlRead + " msec, size = " + xml.length() + " bytes");
+		System.out.println("BinaryPopulationStoreTest: Binary store = " + binStore + " msec, read = " + binRead + " msec, size = " + bin.length() + " bytes");
+		System.out.println("BinaryPopulationStoreTest: Binary random access required " + binRandom + " msec");
+
+		assert xmlGenomes.size() == genomes.size();
+		assert binGenomes.size() == genomes.size();
+
+		// Importing the XML should produce the same values
+		File imported = new File("results/population-store-imported.bin");
+		new BinaryPopulationStore(imported).importXml(xml);
+		assert Arrays.equals(Files.readAllBytes(bin.toPath()), Files.readAllBytes(imported.toPath()));
+	}
+
+	@Test
+	public void sameHealth() throws IOException {
+		AudioScene<?> scene = scene();
+		Supplier<Genome<PackedCollection<?>>> generator = CellularAudioOptimizer.generator(scene).get();
+		List<Genome<PackedCollection<?>>> genomes = IntStream.range(0, 4).mapToObj(i -> generator.get()).collect(Collectors.toList());
+
+		BinaryPopulationStore store = new BinaryPopulationStore(new File("results/population-store-health.bin"));
+		store.write(genomes);
+		List<Genome<PackedCollection<?>>> decoded = store.readAll();
+
+		// Assigning a decoded genome to a scene must produce the same audio
+		List<Double> original = health(genomes);
+		List<Double> restored = health(decoded);
+
+		for (int i = 0; i < genomes.size(); i++) {
+			System.out.println("BinaryPopulationStoreTest: Original = " + original.get(i) + ", restored = " + restored.get(i));
+			assert Math.abs(original.get(i) - restored.get(i)) < 1e-9;
+		}
+
+		// Decoded genomes must be usable as parents for the next generation
+		GenomeBreeder<PackedCollection<?>> breeder = scene.getBreeder();
+		List<Genome<PackedCollection<?>>> children = new ArrayList<>();
+		children.add(breeder.combine(decoded.get(0), decoded.get(1)));
+		children.add(breeder.combine(decoded.get(2), genomes.get(3)));
+
+		List<Double> childHealth = health(children);
+		assert childHealth.size() == children.size();
+
+		// The children must also survive storage
+		store.write(children);
+		assert store.readAll().size() == children.size();
+	}
+}
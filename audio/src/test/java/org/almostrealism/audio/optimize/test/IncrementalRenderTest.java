@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.optimize.test;
+
+import org.almostrealism.audio.AudioMeter;
+import org.almostrealism.audio.AudioScene;
+import org.almostrealism.audio.OutputLine;
+import org.almostrealism.audio.WaveOutput;
+import org.almostrealism.audio.optimize.AudioScenePopulation;
+import org.almostrealism.audio.optimize.CellularAudioOptimizer;
+import org.almostrealism.audio.pattern.test.PatternFactoryTest;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.heredity.Genome;
+import org.almostrealism.heredity.TemporalCellular;
+import org.almostrealism.time.TemporalRunner;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+public class IncrementalRenderTest {
+	public static final int FRAMES = 4 * OutputLine.sampleRate;
+
+	protected AudioScene<?> scene() {
+		AudioScene<?> scene = new AudioScene<>(null, 120, 2, 2, OutputLine.sampleRate);
+		scene.getPatternManager().getChoices().addAll(PatternFactoryTest.createChoices());
+		scene.setTotalMeasures(4);
+		scene.addSection(0, 2);
+		scene.addSection(2, 2);
+		return scene;
+	}
+
+	protected double[] render(AudioScenePopulation<PackedCollection<?>> population, int index, WaveOutput out) {
+		TemporalCellular cells = population.enableGenome(index);
+
+		long start = System.currentTimeMillis();
+		cells.setup().get().run();
+		System.out.println("IncrementalRenderTest: Setup for genome " + index + " required " +
+				(System.currentTimeMillis() - start) + " msec");
+
+		out.reset();
+		new TemporalRunner(cells, FRAMES).getContinue().run();
+		out.write().get().run();
+
+		double series[] = out.getData().toArray(2, 2 * FRAMES);
+		double values[] = new double[FRAMES];
+		for (int i = 0; i < FRAMES; i++) values[i] = series[2 * i + 1];
+
+		population.disableGenome();
+		return values;
+	}
+
+	@Test
+	public void compare() {
+		AudioScene<?> scene = scene();
+		Genome<PackedCollection<?>> a = CellularAudioOptimizer.generator(scene).get().get();
+		Genome<PackedCollection<?>> b = CellularAudioOptimizer.generator(scene).get().get();
+
+		double expected[], actual[];
+
+		WaveOutput out = new WaveOutput(new File("results/incremental-render-test-full.wav"));
+		AudioScenePopulation<PackedCollection<?>> population = new AudioScenePopulation<>(scene, List.of(a, b));
+		population.init(a, List.of(new AudioMeter(), new AudioMeter()), out);
+		expected = render(population, 1, out);
+
+		try {
+			AudioScene.enableIncrementalRender = true;
+
+			scene = scene();
+			out = new WaveOutput(new File("results/incremental-render-test.wav"));
+			population = new AudioScenePopulation<>(scene, List.of(a, b));
+			population.init(a, List.of(new AudioMeter(), new AudioMeter()), out);
+
+			render(population, 0, out);
+			actual = render(population, 1, out);
+
+			// Nothing has changed, so the second setup should skip every channel
+			double repeat[] = render(population, 1, out);
+			for (int i = 0; i < FRAMES; i++) assert actual[i] == repeat[i];
+		} finally {
+			AudioScene.enableIncrementalRender = false;
+		}
+
+		for (int i = 0; i < FRAMES; i++) {
+			assert Math.abs(expected[i] - actual[i]) < 1e-6;
+		}
+	}
+}
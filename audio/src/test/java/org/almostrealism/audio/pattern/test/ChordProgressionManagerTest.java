@@ -1,6 +1,7 @@
 package org.almostrealism.audio.pattern.test;
 
 import org.almostrealism.audio.pattern.ChordProgressionManager;
+import org.almostrealism.audio.tone.Scale;
 import org.almostrealism.audio.tone.WesternChromatic;
 import org.almostrealism.audio.tone.WesternScales;
 import org.almostrealism.heredity.ConfigurableGenome;
@@ -23,4 +24,46 @@ public class ChordProgressionManagerTest {
 			System.out.println(progression.getRegionString());
 		});
 	}
+
+	@Test
+	public void lookup() {
+		ConfigurableGenome genome = new ConfigurableGenome();
+
+		ChordProgressionManager progression = new ChordProgressionManager(genome, WesternScales.minor(WesternChromatic.G1, 1));
+		progression.setSize(8);
+		progression.setDuration(16);
+		genome.assignTo(genome.getParameters().random());
+
+		int resolution = ChordProgressionManager.lookupResolution;
+		int positions = 1000000;
+
+		try {
+			// Without a table, every position requires searching the regions
+			ChordProgressionManager.lookupResolution = 0;
+			progression.refreshParameters();
+			Scale<?> expected[] = new Scale[positions];
+
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < positions; i++) expected[i] = progression.forPosition(i * 0.0013);
+			System.out.println("ChordProgressionManagerTest: Region search required " + (System.currentTimeMillis() - start) + " msec");
+
+			ChordProgressionManager.lookupResolution = resolution;
+			progression.refreshParameters();
+			Scale<?> actual[] = new Scale[positions];
+
+			start = System.currentTimeMillis();
+			for (int i = 0; i < positions; i++) actual[i] = progression.forPosition(i * 0.0013);
+			System.out.println("ChordProgressionManagerTest: Table lookup required " + (System.currentTimeMillis() - start) + " msec");
+
+			for (int i = 0; i < positions; i++) {
+				assert expected[i].length() == actual[i].length();
+
+				for (int j = 0; j < expected[i].length(); j++) {
+					assert expected[i].valueAt(j) == actual[i].valueAt(j);
+				}
+			}
+		} finally {
+			ChordProgressionManager.lookupResolution = resolution;
+		}
+	}
 }
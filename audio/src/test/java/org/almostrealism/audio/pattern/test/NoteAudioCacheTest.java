@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.pattern.test;
+
+import org.almostrealism.audio.pattern.NoteAudioCache;
+import org.almostrealism.audio.tone.DefaultKeyboardTuning;
+import org.almostrealism.audio.tone.KeyboardTuning;
+import org.almostrealism.audio.tone.WesternChromatic;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.hardware.Hardware;
+import org.junit.Test;
+
+public class NoteAudioCacheTest {
+	@Test
+	public void budget() {
+		KeyboardTuning tuning = new DefaultKeyboardTuning();
+
+		// Enough for two entries of 100 values
+		NoteAudioCache cache = new NoteAudioCache(2 * 100 * Hardware.getLocalHardware().getNumberSize());
+
+		PackedCollection c2 = cache.get("Kit/Kick.wav", WesternChromatic.C1, WesternChromatic.C2, tuning, () -> new PackedCollection(100));
+		cache.get("Kit/Kick.wav", WesternChromatic.C1, WesternChromatic.D2, tuning, () -> new PackedCollection(100));
+
+		// The same source, root and target should be shared
+		assert cache.get("Kit/Kick.wav", WesternChromatic.C1, WesternChromatic.C2, tuning, () -> new PackedCollection(100)) == c2;
+
+		// A different tuning is a different entry, and D2 is now the least recently used
+		cache.get("Kit/Kick.wav", WesternChromatic.C1, WesternChromatic.C2, new DefaultKeyboardTuning(), () -> new PackedCollection(100));
+		assert cache.getEntryCount() == 2;
+		assert cache.getSize() <= cache.getBudget();
+		assert cache.getHitCount() == 1;
+		assert cache.getMissCount() == 3;
+		assert cache.getEvictionCount() == 1;
+
+		assert cache.get("Kit/Kick.wav", WesternChromatic.C1, WesternChromatic.C2, tuning, () -> new PackedCollection(100)) == c2;
+		System.out.println(cache.describe());
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.pattern.test;
+
+import org.almostrealism.audio.data.FileWaveDataProvider;
+import org.almostrealism.audio.pattern.NoteAudioStore;
+import org.almostrealism.audio.pattern.PatternNote;
+import org.almostrealism.collect.PackedCollection;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.function.Supplier;
+
+public class NoteAudioStoreTest {
+	protected Supplier<PackedCollection> audio(int count, int computed[]) {
+		return () -> {
+			computed[0]++;
+
+			PackedCollection audio = new PackedCollection(count);
+			for (int i = 0; i < count; i++) audio.setMem(i, Math.sin(i / 10.0));
+			return audio;
+		};
+	}
+
+	@Test
+	public void storeAndLoad() throws IOException {
+		File dir = new File("results/note-store-test");
+		File existing[] = dir.listFiles();
+		if (existing != null) for (File f : existing) f.delete();
+
+		File source = new File("results/note-store-test-source.wav");
+		Files.write(source.toPath(), new byte[] { 1, 2, 3, 4 });
+
+		int computed[] = new int[1];
+
+		PackedCollection stored = new NoteAudioStore(dir, Long.MAX_VALUE)
+				.get(source.getPath(), 1.5, PatternNote.INTERPOLATION_MODE, audio(100000, computed));
+		assert computed[0] == 1;
+
+		// A new store, as if the process was restarted
+		NoteAudioStore store = new NoteAudioStore(dir, Long.MAX_VALUE);
+
+		long start = System.currentTimeMillis();
+		PackedCollection loaded = store.get(source.getPath(), 1.5, PatternNote.INTERPOLATION_MODE, audio(100000, computed));
+		System.out.println("NoteAudioStoreTest: Loading required " + (System.currentTimeMillis() - start) + " msec");
+
+		assert computed[0] == 1;
+		assert store.getHitCount() == 1;
+		assert loaded.getMemLength() == stored.getMemLength();
+
+		double expected[] = stored.toArray(0, stored.getMemLength());
+		double actual[] = loaded.toArray(0, loaded.getMemLength());
+		for (int i = 0; i < expected.length; i++) assert expected[i] == actual[i];
+
+		// A different ratio, or a modified source, is a different note
+		store.get(source.getPath(), 2.0, PatternNote.INTERPOLATION_MODE, audio(100, computed));
+		assert computed[0] == 2;
+
+		Files.write(source.toPath(), new byte[] { 4, 3, 2, 1, 0 });
+		store.get(source.getPath(), 1.5, PatternNote.INTERPOLATION_MODE, audio(100, computed));
+		assert computed[0] == 3;
+	}
+
+	@Test
+	public void budget() throws IOException {
+		File dir = new File("results/note-store-budget-test");
+		File existing[] = dir.listFiles();
+		if (existing != null) for (File f : existing) f.delete();
+
+		File source = new File("results/note-store-budget-source.wav");
+		Files.write(source.toPath(), new byte[] { 1, 2, 3, 4 });
+
+		int computed[] = new int[1];
+
+		// Each note is 8 bytes of header and 8000 bytes of samples
+		NoteAudioStore store = new NoteAudioStore(dir, 20000);
+		store.get(source.getPath(), 1.0, PatternNote.INTERPOLATION_MODE, audio(1000, computed));
+		store.get(source.getPath(), 2.0, PatternNote.INTERPOLATION_MODE, audio(1000, computed));
+		assert store.size() == 2;
+
+		// Using the first note makes the second the least recently used
+		store.get(source.getPath(), 1.0, PatternNote.INTERPOLATION_MODE, audio(1000, computed));
+		assert computed[0] == 2;
+
+		store.get(source.getPath(), 3.0, PatternNote.INTERPOLATION_MODE, audio(1000, computed));
+		assert store.size() == 2;
+		assert store.getSize() <= store.getBudget();
+
+		store.get(source.getPath(), 1.0, PatternNote.INTERPOLATION_MODE, audio(1000, computed));
+		assert computed[0] == 3;
+		store.get(source.getPath(), 2.0, PatternNote.INTERPOLATION_MODE, audio(1000, computed));
+		assert computed[0] == 4;
+
+		// The budget also applies to the notes found in the directory
+		store = new NoteAudioStore(dir, 10000);
+		assert store.size() == 1;
+		assert dir.listFiles((d, name) -> name.endsWith(".note")).length == 1;
+	}
+
+	@Test
+	public void sampleRate() throws IOException {
+		File dir = new File("results/note-store-rate-test");
+		File existing[] = dir.listFiles();
+		if (existing != null) for (File f : existing) f.delete();
+
+		File source = new File("results/note-store-rate-source.wav");
+		Files.write(source.toPath(), new byte[] { 1, 2, 3, 4 });
+
+		int computed[] = new int[1];
+		boolean resampling = FileWaveDataProvider.enableResampling;
+
+		try {
+			NoteAudioStore store = new NoteAudioStore(dir, Long.MAX_VALUE);
+
+			FileWaveDataProvider.enableResampling = true;
+			store.get(source.getPath(), 1.5, PatternNote.INTERPOLATION_MODE, audio(100, computed));
+
+			// Without resampling, the source audio may be at a different sample rate
+			FileWaveDataProvider.enableResampling = false;
+			store.get(source.getPath(), 1.5, PatternNote.INTERPOLATION_MODE, audio(100, computed));
+			assert computed[0] == 2;
+		} finally {
+			FileWaveDataProvider.enableResampling = resampling;
+		}
+	}
+}
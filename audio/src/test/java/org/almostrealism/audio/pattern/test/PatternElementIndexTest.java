@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.pattern.test;
+
+import org.almostrealism.audio.pattern.PatternElement;
+import org.almostrealism.audio.pattern.PatternElementIndex;
+import org.almostrealism.audio.pattern.PatternNote;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PatternElementIndexTest {
+	public static final int MEASURES = 64;
+	public static final int LAYERS = 4;
+
+	/**
+	 * Every layer has a note on every 16th, and some of them repeat.
+	 */
+	protected List<PatternElement> elements() {
+		List<PatternElement> elements = new ArrayList<>();
+		PatternNote note = new PatternNote("Kit/Kick.wav");
+
+		for (int l = 0; l < LAYERS; l++) {
+			for (int i = 0; i < MEASURES * 16; i++) {
+				PatternElement e = new PatternElement(note, i / 16.0);
+
+				if (i % 3 == l % 3) {
+					e.setRepeatCount(2);
+					e.setRepeatDuration(1.0 / 32);
+				}
+
+				elements.add(e);
+			}
+		}
+
+		return elements;
+	}
+
+	protected double nextPosition(List<PatternElement> elements, double position, double end) {
+		return elements.stream()
+				.filter(e -> e.getPosition() >= position && e.getPosition() < end)
+				.map(PatternElement::getPositions)
+				.flatMap(List::stream)
+				.filter(p -> p > position)
+				.mapToDouble(p -> p)
+				.min().orElse(end);
+	}
+
+	@Test
+	public void nextPosition() {
+		List<PatternElement> elements = elements();
+		PatternElementIndex index = new PatternElementIndex(elements);
+
+		double positions[] = elements.stream().mapToDouble(PatternElement::getPosition).toArray();
+		double expected[] = new double[positions.length];
+		double actual[] = new double[positions.length];
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < positions.length; i++) expected[i] = nextPosition(elements, positions[i], MEASURES);
+		System.out.println("PatternElementIndexTest: Filtering " + elements.size() + " elements required " +
+				(System.currentTimeMillis() - start) + " msec");
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < positions.length; i++) actual[i] = index.nextPosition(positions[i], MEASURES);
+		System.out.println("PatternElementIndexTest: Index lookup for " + elements.size() + " elements required " +
+				(System.currentTimeMillis() - start) + " msec");
+
+		for (int i = 0; i < positions.length; i++) {
+			assert expected[i] == actual[i];
+		}
+	}
+
+	@Test
+	public void range() {
+		List<PatternElement> elements = elements();
+		PatternElementIndex index = new PatternElementIndex(elements);
+
+		for (double start = 0; start < MEASURES; start += 0.75) {
+			double s = start;
+			long expected = elements.stream().filter(e -> e.getPosition() >= s && e.getPosition() < s + 1.5).count();
+			List<PatternElement> actual = index.getElements(s, s + 1.5);
+
+			assert actual.size() == expected;
+			assert actual.stream().allMatch(e -> e.getPosition() >= s && e.getPosition() < s + 1.5);
+		}
+	}
+}
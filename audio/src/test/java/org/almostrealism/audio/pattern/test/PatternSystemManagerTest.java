@@ -0,0 +1,259 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.pattern.test;
+
+import org.almostrealism.audio.OutputLine;
+import org.almostrealism.audio.data.ParameterSet;
+import org.almostrealism.audio.pattern.PatternLayerManager;
+import org.almostrealism.audio.pattern.PatternSystemManager;
+import org.almostrealism.audio.tone.DefaultKeyboardTuning;
+import org.almostrealism.audio.tone.Scale;
+import org.almostrealism.audio.tone.WesternChromatic;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.collect.ProducerWithOffset;
+import org.almostrealism.collect.computations.RootDelegateSegmentsAdd;
+import org.almostrealism.time.Frequency;
+import org.almostrealism.CodeFeatures;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleFunction;
+import java.util.stream.IntStream;
+
+public class PatternSystemManagerTest implements CodeFeatures {
+	public static final int MEASURES = 64;
+	public static final int CHANNELS = 5;
+	public static final int PATTERNS_PER_CHANNEL = 6;
+
+	protected PatternSystemManager patterns() {
+		PatternSystemManager patterns = new PatternSystemManager(PatternFactoryTest.createChoices());
+		patterns.init();
+		patterns.setTuning(new DefaultKeyboardTuning());
+
+		for (int c = 0; c < CHANNELS; c++) {
+			for (int p = 0; p < PATTERNS_PER_CHANNEL; p++) {
+				PatternLayerManager pattern = patterns.addPattern(c, Math.pow(2, p % 4), false);
+				IntStream.range(0, 3).forEach(i -> pattern.addLayer(ParameterSet.random()));
+			}
+		}
+
+		return patterns;
+	}
+
+	protected double[] sum(PatternSystemManager patterns, boolean parallel, boolean tiled) {
+		return sum(patterns, parallel, tiled, pos -> Scale.of(WesternChromatic.C1));
+	}
+
+	protected double[] sum(PatternSystemManager patterns, boolean parallel, boolean tiled,
+						   DoubleFunction<Scale<?>> scaleForPosition) {
+		return sum(patterns, parallel, tiled, scaleForPosition, (int) (Frequency.forBPM(120).l(4) * OutputLine.sampleRate));
+	}
+
+	protected double[] sum(PatternSystemManager patterns, boolean parallel, boolean tiled,
+						   DoubleFunction<Scale<?>> scaleForPosition, double measureSamples) {
+		boolean enabled = PatternLayerManager.enableCycleTiling;
+
+		try {
+			PatternLayerManager.enableCycleTiling = tiled;
+			return sum(patterns, parallel, scaleForPosition, measureSamples);
+		} finally {
+			PatternLayerManager.enableCycleTiling = enabled;
+		}
+	}
+
+	protected double[] sum(PatternSystemManager patterns, boolean parallel) {
+		return sum(patterns, parallel, pos -> Scale.of(WesternChromatic.C1));
+	}
+
+	protected double[] sum(PatternSystemManager patterns, boolean parallel, DoubleFunction<Scale<?>> scaleForPosition) {
+		return sum(patterns, parallel, scaleForPosition, (int) (Frequency.forBPM(120).l(4) * OutputLine.sampleRate));
+	}
+
+	protected double[] sum(PatternSystemManager patterns, boolean parallel,
+						   DoubleFunction<Scale<?>> scaleForPosition, double measureSamples) {
+		int totalSamples = (int) (MEASURES * measureSamples);
+		PackedCollection destination = new PackedCollection(totalSamples);
+		double result[] = new double[CHANNELS * totalSamples];
+
+		boolean enabled = PatternSystemManager.enableParallelSum;
+
+		try {
+			PatternSystemManager.enableParallelSum = parallel;
+
+			long start = System.currentTimeMillis();
+
+			for (int c = 0; c < CHANNELS; c++) {
+				destination.clear();
+				patterns.sum(List.of(c), pos -> (int) (pos * measureSamples), MEASURES,
+						scaleForPosition, destination,
+						() -> new PackedCollection(totalSamples));
+				System.arraycopy(destination.toArray(0, destination.getMemLength()), 0,
+						result, c * destination.getMemLength(), destination.getMemLength());
+			}
+
+			System.out.println("PatternSystemManagerTest: " + (parallel ? "Parallel" : "Serial") +
+					(PatternLayerManager.enableCycleTiling ? " tiled" : "") + " pattern setup required " + (System.currentTimeMillis() - start) + " msec");
+		} finally {
+			PatternSystemManager.enableParallelSum = enabled;
+		}
+
+		return result;
+	}
+
+	@Test
+	public void parallelSum() {
+		PatternSystemManager patterns = patterns();
+
+		double serial[] = sum(patterns, false);
+		double parallel[] = sum(patterns, true);
+
+		assert serial.length == parallel.length;
+		for (int i = 0; i < serial.length; i++) {
+			assert Math.abs(serial[i] - parallel[i]) < 1e-6;
+		}
+	}
+
+	@Test
+	public void tiledSum() {
+		PatternSystemManager patterns = patterns();
+
+		// Without a chord progression, every cycle of a pattern is the same
+		double rendered[] = sum(patterns, false, false);
+		double tiled[] = sum(patterns, false, true);
+
+		assert rendered.length == tiled.length;
+		for (int i = 0; i < rendered.length; i++) {
+			assert Math.abs(rendered[i] - tiled[i]) < 1e-6;
+		}
+	}
+
+	@Test
+	public void tiledSumVaryingScale() {
+		PatternSystemManager patterns = patterns();
+
+		// The scale changes every 8 measures, so only some of the cycles can be tiled
+		DoubleFunction<Scale<?>> scale = pos -> ((int) (pos / 8)) % 2 == 0 ?
+				Scale.of(WesternChromatic.C1) : Scale.of(WesternChromatic.G1);
+
+		double rendered[] = sum(patterns, false, false, scale);
+		double tiled[] = sum(patterns, false, true, scale);
+
+		assert rendered.length == tiled.length;
+		for (int i = 0; i < rendered.length; i++) {
+			assert Math.abs(rendered[i] - tiled[i]) < 1e-6;
+		}
+	}
+
+	@Test
+	public void tiledSumFractionalMeasure() {
+		PatternSystemManager patterns = patterns();
+
+		// At 117 BPM a measure is 90461.538... frames, so the
+		// frame of a position depends on the cycle it is in
+		double measureSamples = Frequency.forBPM(117).l(4) * OutputLine.sampleRate;
+		assert measureSamples != Math.floor(measureSamples);
+
+		DoubleFunction<Scale<?>> scale = pos -> Scale.of(WesternChromatic.C1);
+		double rendered[] = sum(patterns, false, false, scale, measureSamples);
+		double tiled[] = sum(patterns, false, true, scale, measureSamples);
+
+		assert rendered.length == tiled.length;
+		for (int i = 0; i < rendered.length; i++) {
+			assert Math.abs(rendered[i] - tiled[i]) < 1e-6;
+		}
+	}
+
+	@Test
+	public void batches() {
+		int inputs = 10;
+		int length = 100;
+
+		PackedCollection note = new PackedCollection(length);
+		for (int i = 0; i < length; i++) note.setMem(i, i + 1.0);
+
+		PackedCollection destination = new PackedCollection(inputs * 10 + length);
+		RootDelegateSegmentsAdd<PackedCollection> sum = new RootDelegateSegmentsAdd<>(4, destination.traverse(1));
+
+		List<ProducerWithOffset<PackedCollection>> notes = new ArrayList<>();
+		for (int i = 0; i < inputs; i++) notes.add(new ProducerWithOffset<>(v(note), i * 10));
+
+		// More inputs than the sum accepts at once
+		PatternLayerManager.runBatches(sum, sum.get(), notes);
+
+		double expected[] = new double[destination.getMemLength()];
+		for (int i = 0; i < inputs; i++) {
+			for (int j = 0; j < length; j++) expected[i * 10 + j] += j + 1.0;
+		}
+
+		double actual[] = destination.toArray(0, destination.getMemLength());
+		for (int i = 0; i < expected.length; i++) {
+			assert Math.abs(expected[i] - actual[i]) < 1e-6;
+		}
+	}
+
+	@Test
+	public void batchThroughput() {
+		int inputs = PatternLayerManager.MAX_NOTES;
+		int length = 4096;
+		int spacing = 64;
+		int runs = 5;
+
+		PackedCollection note = new PackedCollection(length);
+		for (int i = 0; i < length; i++) note.setMem(i, Math.sin(i * 0.01));
+
+		List<ProducerWithOffset<PackedCollection>> notes = new ArrayList<>();
+		for (int i = 0; i < inputs; i++) notes.add(new ProducerWithOffset<>(v(note), i * spacing));
+
+		double expected[] = new double[inputs * spacing + length];
+		for (int i = 0; i < inputs; i++) {
+			for (int j = 0; j < length; j++) expected[i * spacing + j] += Math.sin(j * 0.01);
+		}
+
+		// One input per kernel call, all inputs in a single kernel call, and the inputs in chunks
+		double serial[] = batchSum(notes, expected.length, 1, runs, "Serial");
+		double single[] = batchSum(notes, expected.length, inputs, runs, "Single batch");
+		double batched[] = batchSum(notes, expected.length, inputs / 8, runs, "Batched");
+
+		for (int i = 0; i < expected.length; i++) {
+			assert Math.abs(expected[i] - serial[i]) < 1e-6;
+			assert Math.abs(serial[i] - single[i]) < 1e-6;
+			assert Math.abs(serial[i] - batched[i]) < 1e-6;
+		}
+	}
+
+	protected double[] batchSum(List<ProducerWithOffset<PackedCollection>> notes, int length,
+								int maxInputs, int runs, String name) {
+		PackedCollection destination = new PackedCollection(length);
+		RootDelegateSegmentsAdd<PackedCollection> sum = new RootDelegateSegmentsAdd<>(maxInputs, destination.traverse(1));
+		Runnable run = sum.get();
+
+		// Compile before timing
+		PatternLayerManager.runBatches(sum, run, notes);
+
+		long start = System.currentTimeMillis();
+
+		for (int r = 0; r < runs; r++) {
+			destination.clear();
+			PatternLayerManager.runBatches(sum, run, notes);
+		}
+
+		System.out.println("PatternSystemManagerTest: " + name + " sum of " + notes.size() + " inputs (" +
+				maxInputs + " per batch) required " + (System.currentTimeMillis() - start) / runs + " msec");
+		return destination.toArray(0, length);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.almostrealism.audio.test;
+
+import org.almostrealism.audio.WavFile;
+import org.almostrealism.audio.WaveOutput;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.util.TestFeatures;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class WaveOutputTest implements TestFeatures {
+	public static final int FRAMES = 10000;
+	public static final int FLUSH_FRAMES = 1000;
+
+	protected void render(WaveOutput output, boolean flush) {
+		PackedCollection<?> value = new PackedCollection<>(1);
+		Runnable push = output.push(p(value)).get();
+		Runnable flushOutput = flush ? output.flush().get() : null;
+
+		for (int i = 0; i < FRAMES; i++) {
+			value.setMem(0, 0.5 * Math.sin(i / 20.0));
+			push.run();
+
+			if (flush && (i + 1) % FLUSH_FRAMES == 0) flushOutput.run();
+		}
+	}
+
+	protected double[][] read(File f) throws IOException {
+		WavFile w = WavFile.openWavFile(f);
+		double data[][] = new double[w.getNumChannels()][(int) w.getNumFrames()];
+		w.readFrames(data, (int) w.getNumFrames());
+		w.close();
+		return data;
+	}
+
+	protected long readInt(RandomAccessFile f, long position) throws IOException {
+		f.seek(position);
+
+		long value = 0;
+		for (int b = 0; b < 4; b++) value |= (long) f.read() << (8 * b);
+		return value;
+	}
+
+	@Test
+	public void streamingMatchesWrite() throws IOException {
+		File expectedFile = new File("results/wave-output-test.wav");
+		File streamedFile = new File("results/wave-output-streaming-test.wav");
+
+		WaveOutput output = new WaveOutput(expectedFile);
+		render(output, false);
+		output.write().get().run();
+
+		WaveOutput streaming = WaveOutput.streaming(() -> streamedFile, 24);
+		render(streaming, true);
+
+		// The header is valid before the file is completed
+		try (RandomAccessFile f = new RandomAccessFile(streamedFile, "r")) {
+			assert readInt(f, 4) == f.length() - 8;
+			assert readInt(f, 40) == f.length() - 44;
+		}
+
+		streaming.write().get().run();
+
+		try (RandomAccessFile f = new RandomAccessFile(streamedFile, "r")) {
+			long dataSize = readInt(f, 40);
+			assert dataSize == f.length() - 44 - dataSize % 2;
+			assert readInt(f, 4) == f.length() - 8;
+		}
+
+		double expected[][] = read(expectedFile);
+		double actual[][] = read(streamedFile);
+
+		assert expected[0].length == FRAMES - 1;
+		assert actual[0].length == expected[0].length;
+
+		for (int c = 0; c < expected.length; c++) {
+			for (int i = 0; i < expected[c].length; i++) {
+				assert expected[c][i] == actual[c][i];
+			}
+		}
+	}
+
+	@Test
+	public void incompleteStreamDeleted() {
+		File streamedFile = new File("results/wave-output-incomplete-test.wav");
+
+		WaveOutput streaming = WaveOutput.streaming(() -> streamedFile, 24);
+		render(streaming, true);
+		assert streamedFile.exists();
+
+		streaming.reset();
+		assert !streamedFile.exists();
+	}
+}